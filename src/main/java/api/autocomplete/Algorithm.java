@@ -1,7 +1,9 @@
 package api.autocomplete;
 
+import api.didyoumean.levenshteinautomata.CharacteristicVectors;
+import api.didyoumean.levenshteinautomata.LevenshteinAutomataFactory;
 import api.tree.Element;
-import api.tree.Root;
+import api.tree.Trie;
 
 import java.util.*;
 
@@ -58,35 +60,242 @@ public final class Algorithm {
     }
 
     /**
-     * Searches for the {@code c} keywords in {@code r} with the highest score beginning with {@code p}.
+     * Searches for the {@code c} keywords in {@code r} with the highest score beginning with {@code p}.<br>
+     * Every node holds the maximal weight of the keywords below it, so the search is best-first: the subtrees below
+     * the node of {@code p} are kept in a heap by weight, and the heaviest one is replaced by its children until a
+     * leaf comes out on top, which is the next keyword. Only the paths to the {@code c} results are expanded, and the
+     * heap only keeps as many subtrees as keywords are still needed (see {@link TopSubtrees}).
      *
      * @param r The root of the api.tree to search in
      * @param c The amount of keywords to be return
-     * @param p The prefix all the resulting keywords must have
+     * @param p The prefix all the resulting keywords must have, matched literally
      * @return A list with at most {@code c} keywords (less than {@code c} if no more could be found).
      */
-    public static List<String> getTopKeywords(Root r, int c, String p) {
+    public static List<String> getTopKeywords(Trie r, int c, String p) {
         p = p.toLowerCase();
         List<String> result = new ArrayList<>(c);
-        Element n = r.searchElement(p);
-        if (n == null) {
+        int n = r.searchPrefix(p);
+        if (n == Trie.NONE) {
             return result;
         }
-        Set<Element> searchNodes = new HashSet<>();
-        searchNodes.addAll(n.getChildren());
-        int i = 0;
-        while (i++ < c && !searchNodes.isEmpty()) {
-            String keyword = maxNode(searchNodes);
-            result.add(keyword.replace(String.valueOf(Element.TERM), ""));
-            for (Element e : searchNodes) {
-                String word = e.getWord();
-                if (keyword.startsWith(word)) {
-                    searchNodes.remove(e);
-                    searchNodes.addAll(excludeKeyword(e, keyword.replaceFirst(word, "")));
-                    break;
+        TopSubtrees queue = new TopSubtrees(c);
+        queue.offer(n, r.weight(n));
+        while (result.size() < c && !queue.isEmpty()) {
+            int node = queue.poll();
+            if (r.isLeaf(node)) {
+                // no subtree in the queue holds a heavier keyword
+                result.add(r.word(node));
+                queue.shrink();
+                continue;
+            }
+            for (int child = r.firstChild(node); child != Trie.NONE; child = r.nextSibling(child)) {
+                queue.offer(child, r.weight(child));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches for the {@code c} keywords in {@code r} that begin with a prefix within {@code k} edits of {@code p}.
+     * A keyword matches if the Levenshtein distance between {@code p} and one of its prefixes is at most {@code k}.<br>
+     * The tree is intersected with the Levenshtein automaton of {@code p} in a single best-first traversal: keywords
+     * with a closer prefix come first, and keywords with equally close prefixes are sorted by weight. Every subtree is
+     * ordered by the lowest distance any keyword in it can have (the best accepted prefix on its path, or the minimal
+     * amount of edits its automaton state still needs) and then by its maximal weight. Neither can improve further
+     * down the tree, so keywords are found in order and the search stops after the {@code c}th one.
+     *
+     * @param r   The root of the api.tree to search in
+     * @param c   The amount of keywords to be return
+     * @param p   The (possibly misspelled) prefix of the resulting keywords
+     * @param laf The factory for simulating Levenshtein automata
+     * @param k   The maximal amount of edits between {@code p} and a prefix of a resulting keyword
+     * @return A list with at most {@code c} keywords (less than {@code c} if no more could be found).
+     * @throws IllegalArgumentException if {@code k} is negative, or greater than the maximal distance of {@code laf}.
+     */
+    public static List<String> getFuzzyTopKeywords(Trie r, int c, String p, LevenshteinAutomataFactory laf, int k) {
+        if (k < 0 || k > laf.getMaxDistance()) {
+            throw new IllegalArgumentException("Invalid amount of edits in Algorithm.getFuzzyTopKeywords.");
+        }
+        p = p.toLowerCase();
+        int w = p.length();
+        CharacteristicVectors vectors = new CharacteristicVectors(p);
+        List<String> result = new ArrayList<>(c);
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+
+        long init = laf.getInitState();
+        int best = laf.isAccepting(init, w) ? laf.getDistance(init, w) : Integer.MAX_VALUE;
+        queue.add(new Candidate(r.root(), r.weight(r.root()), init, best, Math.min(best, laf.getMinEdits(init))));
+        while (!queue.isEmpty() && result.size() < c) {
+            Candidate candidate = queue.poll();
+            if (r.isLeaf(candidate.node)) {
+                result.add(r.word(candidate.node));
+                continue;
+            }
+            for (int child = r.firstChild(candidate.node); child != Trie.NONE; child = r.nextSibling(child)) {
+                if (r.isLeaf(child)) {
+                    if (candidate.best <= k) {
+                        queue.add(new Candidate(child, r.weight(child), LevenshteinAutomataFactory.FAILURE_STATE,
+                                candidate.best, candidate.best));
+                    }
+                    continue;
+                }
+                long state = candidate.state;
+                int childBest = candidate.best;
+                // every letter of the label ends a prefix that may be accepted
+                int length = r.labelLength(child);
+                for (int i = 0; i < length && state != LevenshteinAutomataFactory.FAILURE_STATE; i++) {
+                    state = laf.step(state, r.labelAt(child, i), vectors);
+                    if (state != LevenshteinAutomataFactory.FAILURE_STATE && laf.isAccepting(state, w)) {
+                        childBest = Math.min(childBest, laf.getDistance(state, w));
+                    }
+                }
+                int bound = childBest;
+                if (state != LevenshteinAutomataFactory.FAILURE_STATE) {
+                    bound = Math.min(childBest, laf.getMinEdits(state));
+                }
+                // once a prefix is accepted, the whole subtree matches even if the automaton fails further down
+                if (bound <= k) {
+                    queue.add(new Candidate(child, r.weight(child), state, childBest, bound));
                 }
             }
         }
         return result;
     }
+
+    /**
+     * The heaviest subtrees in the search of {@link #getTopKeywords}, at most as many as keywords are still needed.
+     * Every subtree holds a keyword with the weight of the subtree, so a subtree that is lighter than that many others
+     * can not hold any of the results, and is dropped.<br>
+     * The subtrees are kept in a binary min-heap in parallel arrays, so that the lightest one is dropped in logarithmic
+     * time and no objects are allocated. The heaviest one is in the second half of the heap, which is scanned.
+     */
+    private static final class TopSubtrees {
+        private final int[] nodes;
+        private final int[] weights;
+        private int capacity;
+        private int size;
+
+        /**
+         * Creates an empty heap.
+         *
+         * @param capacity the amount of keywords that are needed.
+         */
+        private TopSubtrees(int capacity) {
+            this.capacity = capacity;
+            nodes = new int[capacity];
+            weights = new int[capacity];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Adds a subtree, unless the heap is full and the subtree is not heavier than the lightest one, which is
+         * dropped otherwise.
+         *
+         * @param node   the handle of the root of the subtree.
+         * @param weight the weight of {@code node}.
+         */
+        private void offer(int node, int weight) {
+            if (size < capacity) {
+                siftUp(size++, node, weight);
+            } else if (size > 0 && weight > weights[0]) {
+                siftDown(node, weight);
+            }
+        }
+
+        /**
+         * Removes the heaviest subtree.
+         *
+         * @return the handle of the root of the heaviest subtree.
+         */
+        private int poll() {
+            int max = size / 2;
+            for (int i = max + 1; i < size; i++) {
+                if (weights[i] > weights[max]) {
+                    max = i;
+                }
+            }
+            int result = nodes[max];
+            size--;
+            if (max < size) {
+                // max has no children, so the last subtree can only move up from there
+                siftUp(max, nodes[size], weights[size]);
+            }
+            return result;
+        }
+
+        /**
+         * Keeps one subtree less, after a keyword is found.
+         */
+        private void shrink() {
+            capacity--;
+        }
+
+        private void siftUp(int i, int node, int weight) {
+            while (i > 0 && weights[(i - 1) / 2] > weight) {
+                int parent = (i - 1) / 2;
+                nodes[i] = nodes[parent];
+                weights[i] = weights[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            weights[i] = weight;
+        }
+
+        /**
+         * Replaces the lightest subtree.
+         *
+         * @param node   the handle of the root of the new subtree.
+         * @param weight the weight of {@code node}.
+         */
+        private void siftDown(int node, int weight) {
+            int i = 0;
+            for (int child = 1; child < size; child = 2 * i + 1) {
+                if (child + 1 < size && weights[child + 1] < weights[child]) {
+                    child++;
+                }
+                if (weights[child] >= weight) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                weights[i] = weights[child];
+                i = child;
+            }
+            nodes[i] = node;
+            weights[i] = weight;
+        }
+    }
+
+    /**
+     * A subtree in the search of {@link #getFuzzyTopKeywords}, along with the state of the automaton at its root.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int node;
+        private final int weight;
+        private final long state;
+        /**
+         * The lowest distance of an accepted prefix on the path to {@link #node}, or {@link Integer#MAX_VALUE}.
+         */
+        private final int best;
+        /**
+         * The lowest distance any keyword in the subtree can have.
+         */
+        private final int bound;
+
+        private Candidate(int node, int weight, long state, int best, int bound) {
+            this.node = node;
+            this.weight = weight;
+            this.state = state;
+            this.best = best;
+            this.bound = bound;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            int result = Integer.compare(bound, o.bound);
+            return result != 0 ? result : Integer.compare(o.weight, weight);
+        }
+    }
 }
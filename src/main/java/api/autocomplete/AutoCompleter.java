@@ -1,12 +1,18 @@
 package api.autocomplete;
 
 import api.database.IDBControl;
-import api.tree.Root;
+import api.didyoumean.levenshteinautomata.LevenshteinAutomataFactory;
+import api.tree.Trie;
+import api.tree.TrieType;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import static api.autocomplete.Algorithm.getFuzzyTopKeywords;
 import static api.autocomplete.Algorithm.getTopKeywords;
 
 /**
@@ -17,16 +23,44 @@ import static api.autocomplete.Algorithm.getTopKeywords;
  * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
  */
 public class AutoCompleter {
+    /**
+     * The maximal amount of edits in fuzzy mode.
+     */
+    public static final int MAX_FUZZINESS = 3;
     private IDBControl DB;
-    private Root tree;
+    private final TrieType trieType;
+    private volatile Trie tree;
+    private int fuzziness;
+    private int[] completionCacheSizes = new int[0];
+    /**
+     * The precomputed completions of short prefixes in {@link #tree}, or {@code null} if they are not cached.
+     */
+    private CompletionCache completionCache;
+    /**
+     * Keeps keywords from being learned while the tree is searched, which the array-based tries need.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
-     * Initializes new AutoCompleter
+     * Initializes new AutoCompleter, with a {@link TrieType#NODES node-based} trie.
      *
      * @param idb the database control.
      */
     public AutoCompleter(IDBControl idb) {
+        this(idb, TrieType.NODES);
+    }
+
+    /**
+     * Initializes new AutoCompleter<br>
+     * The array-based tries ({@link TrieType#DOUBLE_ARRAY} and {@link TrieType#RADIX}) take far less memory, but can
+     * not be searched while a keyword is added, so this class keeps searches and {@link #learn learned keywords} apart.
+     *
+     * @param idb      the database control.
+     * @param trieType the type of the trie of the keywords.
+     */
+    public AutoCompleter(IDBControl idb, TrieType trieType) {
         this.DB = idb;
+        this.trieType = trieType;
         makeTree();
     }
 
@@ -38,8 +72,8 @@ public class AutoCompleter {
     }
 
     /**
-     * Gets data from {@link IDBControl#getData()}, creates a new {@link Root}
-     * and uses {@link Root#addOrIncrementWord(String, int)} to make a tree of this data.
+     * Gets data from {@link IDBControl#getData()}, creates a new {@link Trie} of the {@link TrieType} of this
+     * AutoCompleter and uses {@link Trie#addOrIncrementWord(String, int)} to make a tree of this data.
      */
     private void makeTree() {
         Map<String, Integer> data = null;
@@ -48,13 +82,18 @@ public class AutoCompleter {
         } catch (IOException e) {
             e.printStackTrace();
         }
-        tree = new Root();
+        Trie newTree = trieType.create();
 
-        if (data == null) {
-            return;
+        if (data != null) {
+            data.entrySet().forEach(entry -> newTree.addOrIncrementWord(entry.getKey(), entry.getValue()));
+        }
+        lock.writeLock().lock();
+        try {
+            tree = newTree;
+            completionCache = completionCacheSizes.length == 0 ? null : new CompletionCache(tree, completionCacheSizes);
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        data.entrySet().forEach(entry -> tree.addOrIncrementWord(entry.getKey(), entry.getValue()));
     }
 
     /**
@@ -64,7 +103,15 @@ public class AutoCompleter {
      * @param weight  the amount the weight of the keyword will be incremented.
      */
     public void learn(String keyword, int weight) {
-        tree.addOrIncrementWord(keyword, weight);
+        lock.writeLock().lock();
+        try {
+            tree.addOrIncrementWord(keyword, weight);
+            if (completionCache != null) {
+                completionCache.update(keyword);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -75,10 +122,81 @@ public class AutoCompleter {
      * @return a String Array of length k with the best suggestions for the prefix query.
      */
     public String[] getTopN(int n, String query) {
-        List<String> top = getTopKeywords(tree, n, query);
+        List<String> top = null;
+        lock.readLock().lock();
+        try {
+            if (fuzziness == 0 && completionCache != null) {
+                top = completionCache.get(n, query.toLowerCase());
+            }
+            if (top == null && fuzziness == 0) {
+                top = getTopKeywords(tree, n, query);
+            } else if (top == null) {
+                top = getFuzzyTopKeywords(tree, n, query, LevenshteinAutomataFactory.getInstance(fuzziness), fuzziness);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
         return top.toArray(new String[top.size()]);
     }
 
+    /**
+     * Returns the maximal amount of edits between the query and a prefix of a completion.
+     *
+     * @return the fuzziness of the completions, 0 if only exact completions are given.
+     */
+    public int getFuzziness() {
+        return fuzziness;
+    }
+
+    /**
+     * Sets the maximal amount of edits between the query and a prefix of a completion. With a positive fuzziness,
+     * {@link #getTopN(int, String)} also completes misspelled queries: completions of closer prefixes come first, and
+     * completions of equally close prefixes are sorted by weight.
+     *
+     * @param fuzziness the maximal amount of edits, 0 for exact completions only.
+     * @throws IllegalArgumentException if fuzziness is negative or greater than {@link #MAX_FUZZINESS}.
+     */
+    public void setFuzziness(int fuzziness) {
+        if (fuzziness < 0 || fuzziness > MAX_FUZZINESS) {
+            throw new IllegalArgumentException("Tried to set an invalid fuzziness.");
+        }
+        this.fuzziness = fuzziness;
+    }
+
+    /**
+     * Returns the amount of completions that are precomputed for every prefix length.
+     *
+     * @return the sizes of the completion cache, starting at the empty prefix; empty if completions are not cached.
+     */
+    public int[] getCompletionCacheSizes() {
+        return completionCacheSizes.clone();
+    }
+
+    /**
+     * Sets the amount of completions that are precomputed for every prefix length. The top {@code sizes[d]}
+     * completions of every prefix of length {@code d} are kept up to date while keywords are learned, so that
+     * {@link #getTopN(int, String)} can look them up instead of searching the tree (unless more completions are
+     * requested, or the fuzziness is positive). Longer prefixes, and lengths with size 0, are not cached.<br>
+     * A larger size or a longer prefix makes more queries a lookup, at the cost of memory and of work for every
+     * learned keyword.
+     *
+     * @param sizes the amount of completions for every prefix length, starting at the empty prefix; no sizes to
+     *              stop caching completions.
+     * @throws IllegalArgumentException if sizes is null or contains a negative size.
+     */
+    public void setCompletionCacheSizes(int... sizes) {
+        if (sizes == null || Arrays.stream(sizes).anyMatch(size -> size < 0)) {
+            throw new IllegalArgumentException("Tried to set an invalid completion cache size.");
+        }
+        lock.writeLock().lock();
+        try {
+            completionCacheSizes = sizes.clone();
+            completionCache = sizes.length == 0 ? null : new CompletionCache(tree, sizes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     /**
      * Sets the DB and resets the tree.
      *
@@ -0,0 +1,172 @@
+package api.autocomplete;
+
+import api.tree.Element;
+import api.tree.Trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The precomputed top completions of every short prefix in a {@link Trie}, as term ids.<br>
+ * The amount of completions that is kept is configured per prefix length: {@code sizes[d]} completions for every
+ * prefix of length {@code d}, and none for longer prefixes. Short prefixes have the most completions, so they gain the
+ * most from a lookup, while longer prefixes are cheap to search and far more numerous.<br>
+ * The cache is filled from the trie once, and kept up to date by {@link #update} after every keyword that is learned.
+ * Weights only grow, so a completion can only be pushed out by another keyword that is learned.<br>
+ * <br>
+ * Instances are not thread-safe: keywords may only be updated while no other thread reads this cache.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class CompletionCache {
+    private final Trie tree;
+    private final int[] sizes;
+    private final Map<String, Completions> completions = new HashMap<>();
+
+    /**
+     * Creates a cache of the completions in a trie.
+     *
+     * @param tree  the trie of the keywords.
+     * @param sizes the amount of completions to keep for every prefix length, starting at the empty prefix.
+     * @throws IllegalArgumentException if {@code tree} or {@code sizes} is null, or if a size is negative.
+     */
+    public CompletionCache(Trie tree, int... sizes) {
+        if (tree == null || sizes == null || Arrays.stream(sizes).anyMatch(size -> size < 0)) {
+            throw new IllegalArgumentException("Invalid arguments in CompletionCache.");
+        }
+        this.tree = tree;
+        this.sizes = sizes.clone();
+        fill(tree.root());
+    }
+
+    /**
+     * Adds the keywords below a node to this cache.
+     *
+     * @param node the handle of the node.
+     */
+    private void fill(int node) {
+        for (int child = tree.firstChild(node); child != Trie.NONE; child = tree.nextSibling(child)) {
+            if (tree.isLeaf(child)) {
+                offer(tree.word(child), tree.termId(child), tree.weight(child));
+            } else {
+                fill(child);
+            }
+        }
+    }
+
+    /**
+     * Returns the top completions of a prefix, if this cache has enough of them.
+     *
+     * @param n the amount of completions.
+     * @param p the prefix.
+     * @return at most {@code n} keywords starting with {@code p}, sorted by weight as
+     * {@link Algorithm#getTopKeywords} would return them; or {@code null} if this cache does not keep {@code n}
+     * completions of {@code p}.
+     */
+    public List<String> get(int n, String p) {
+        if (p.length() >= sizes.length || sizes[p.length()] == 0) {
+            return null;
+        }
+        Completions top = completions.get(p);
+        List<String> result = new ArrayList<>();
+        if (top == null) {
+            // every prefix of this length is cached, so no keyword starts with p
+            return result;
+        } else if (n > top.size && top.size == sizes[p.length()]) {
+            return null;
+        }
+        for (int i = 0; i < n && i < top.size; i++) {
+            result.add(tree.term(top.termIds[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Updates the completions of the prefixes of a keyword, after it was added to the trie or its weight grew.
+     *
+     * @param k the keyword, which must be in the trie.
+     */
+    public void update(String k) {
+        int leaf = tree.child(tree.searchPrefix(k), Element.TERM);
+        offer(k, tree.termId(leaf), tree.weight(leaf));
+    }
+
+    /**
+     * Offers a keyword to the completions of its prefixes.
+     *
+     * @param k      the keyword.
+     * @param termId the term id of {@code k}.
+     * @param weight the weight of {@code k}.
+     */
+    private void offer(String k, int termId, int weight) {
+        for (int d = 0; d < sizes.length && d <= k.length(); d++) {
+            if (sizes[d] > 0) {
+                completions.computeIfAbsent(k.substring(0, d), p -> new Completions(sizes[p.length()]))
+                        .offer(termId, weight);
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of completions this cache keeps for every prefix length.
+     *
+     * @return the sizes of this cache, starting at the empty prefix.
+     */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /**
+     * Returns the number of prefixes whose completions are in this cache.
+     *
+     * @return the number of cached prefixes.
+     */
+    public int size() {
+        return completions.size();
+    }
+
+    /**
+     * The top completions of a single prefix, sorted by weight (highest first).
+     */
+    private static final class Completions {
+        private final int[] termIds;
+        private final int[] weights;
+        private int size;
+
+        private Completions(int capacity) {
+            termIds = new int[capacity];
+            weights = new int[capacity];
+        }
+
+        /**
+         * Adds a completion, or updates its weight if it is already present. Only the highest weights are kept.
+         *
+         * @param termId the term id of the completion.
+         * @param weight the weight of the completion, at least its previous weight.
+         */
+        private void offer(int termId, int weight) {
+            int i = 0;
+            while (i < size && termIds[i] != termId) {
+                i++;
+            }
+            if (i == size && size < termIds.length) {
+                size++;
+            } else if (i == size) {
+                if (weight <= weights[size - 1]) {
+                    return;
+                }
+                // the lowest completion drops out
+                i = size - 1;
+            }
+            for (; i > 0 && weights[i - 1] < weight; i--) {
+                termIds[i] = termIds[i - 1];
+                weights[i] = weights[i - 1];
+            }
+            termIds[i] = termId;
+            weights[i] = weight;
+        }
+    }
+}
@@ -74,6 +74,26 @@ public class Controller {
         return ac.getTopN(n, query);
     }
 
+    /**
+     * Calls {@link AutoCompleter#setFuzziness(int)}
+     *
+     * @param fuzziness the maximal amount of edits between the prefix and a prefix of a completion.
+     * @throws IllegalArgumentException if fuzziness is negative or greater than {@link AutoCompleter#MAX_FUZZINESS}.
+     */
+    public void setFuzziness(int fuzziness) {
+        ac.setFuzziness(fuzziness);
+    }
+
+    /**
+     * Calls {@link AutoCompleter#setCompletionCacheSizes(int...)}
+     *
+     * @param sizes the amount of precomputed completions for every prefix length, starting at the empty prefix.
+     * @throws IllegalArgumentException if sizes is null or contains a negative size.
+     */
+    public void setCompletionCacheSizes(int... sizes) {
+        ac.setCompletionCacheSizes(sizes);
+    }
+
     /**
      * Calls {@link AutoCompleter#resetTree()}
      */
@@ -0,0 +1,216 @@
+package api.didyoumean;
+
+import java.util.Arrays;
+
+/**
+ * Calculates Levenshtein distances between one fixed word (the pattern) and any other word, using the bit-vector
+ * algorithm of Myers as formulated for edit distance by Hyyrö.<br>
+ * The pattern is preprocessed once into a bitmask per character. After that, a column of the DP matrix is calculated
+ * with a handful of word operations per 64 characters of the pattern, so a distance takes O(|text| * |pattern| / 64)
+ * time. Patterns longer than 64 characters are split into blocks of 64 that pass their carries on to each other.<br>
+ * <br>
+ * Instances are immutable, and can be shared between threads.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ * @see <a href="https://doi.org/10.1145/316542.316550">A fast bit-vector algorithm for approximate string matching
+ * based on dynamic programming (G Myers, 1999)</a>
+ */
+public class BitParallelLevenshtein {
+    private static final int ASCII = 128;
+
+    private final String pattern;
+    private final int blocks;
+    /**
+     * The bit of the last pattern character in the last block.
+     */
+    private final long lastBit;
+    /**
+     * The distinct characters of the pattern, sorted.
+     */
+    private final char[] alphabet;
+    /**
+     * The index in {@link #alphabet} of every ASCII character, or -1 if the pattern does not contain it.
+     */
+    private final int[] asciiIndex;
+    /**
+     * The positions of every character of {@link #alphabet} in the pattern, as {@link #blocks} consecutive bitmasks.
+     */
+    private final long[] peq;
+
+    /**
+     * Preprocesses a pattern.
+     *
+     * @param pattern The word that other words will be compared with.
+     * @throws IllegalArgumentException if {@code pattern} is null.
+     */
+    public BitParallelLevenshtein(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("Null pattern in BitParallelLevenshtein.");
+        }
+        this.pattern = pattern;
+        int m = pattern.length();
+        blocks = Math.max(1, (m + 63) / 64);
+        lastBit = m == 0 ? 0 : 1L << ((m - 1) % 64);
+
+        char[] chars = pattern.toCharArray();
+        Arrays.sort(chars);
+        int distinct = 0;
+        for (int i = 0; i < chars.length; i++) {
+            if (i == 0 || chars[i] != chars[i - 1]) {
+                chars[distinct++] = chars[i];
+            }
+        }
+        alphabet = Arrays.copyOf(chars, distinct);
+        asciiIndex = new int[ASCII];
+        Arrays.fill(asciiIndex, -1);
+        for (int i = 0; i < alphabet.length && alphabet[i] < ASCII; i++) {
+            asciiIndex[alphabet[i]] = i;
+        }
+        peq = new long[alphabet.length * blocks];
+        for (int i = 0; i < m; i++) {
+            peq[indexOf(pattern.charAt(i)) * blocks + i / 64] |= 1L << (i % 64);
+        }
+    }
+
+    /**
+     * Returns the pattern of this instance.
+     *
+     * @return the word that other words are compared with.
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Calculates the Levenshtein distance between the pattern and a word.
+     *
+     * @param text The word to compare with the pattern.
+     * @return The LD between the pattern and {@code text}.
+     * @throws IllegalArgumentException if {@code text} is null.
+     */
+    public int distance(CharSequence text) {
+        return distance(text, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Calculates the Levenshtein distance between the pattern and a word, as long as it does not exceed {@code max}.
+     * The calculation is aborted as soon as the distance is known to exceed {@code max}.
+     *
+     * @param text The word to compare with the pattern.
+     * @param max  The maximal distance that is of interest.
+     * @return The LD between the pattern and {@code text}, or {@code max + 1} if the LD is greater than {@code max}.
+     * @throws IllegalArgumentException if {@code text} is null, or {@code max} is negative.
+     */
+    public int distance(CharSequence text, int max) {
+        if (text == null) {
+            throw new IllegalArgumentException("Null text in BitParallelLevenshtein.distance.");
+        }
+        if (max < 0) {
+            throw new IllegalArgumentException("Negative max in BitParallelLevenshtein.distance.");
+        }
+        int m = pattern.length();
+        int n = text.length();
+        if (Math.abs(m - n) > max) {
+            return max + 1;
+        }
+        if (m == 0 || n == 0) {
+            return Math.max(m, n);
+        }
+        // the LD is never greater than the length of the longest word
+        max = Math.min(max, Math.max(m, n));
+        return blocks == 1 ? distanceSingle(text, max) : distanceBlocks(text, max);
+    }
+
+    /**
+     * Calculates the distance for patterns of at most 64 characters.
+     *
+     * @param text The word to compare with the pattern.
+     * @param max  The maximal distance that is of interest.
+     * @return The LD between the pattern and {@code text}, or {@code max + 1} if the LD is greater than {@code max}.
+     */
+    private int distanceSingle(CharSequence text, int max) {
+        int n = text.length();
+        long pv = -1L;
+        long mv = 0L;
+        int score = pattern.length();
+        for (int j = 0; j < n; j++) {
+            int c = indexOf(text.charAt(j));
+            long eq = c < 0 ? 0L : peq[c];
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & lastBit) != 0) {
+                score++;
+            } else if ((mh & lastBit) != 0) {
+                score--;
+            }
+            // the distance decreases by at most one for every remaining character of the text
+            if (score - (n - j - 1) > max) {
+                return max + 1;
+            }
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        return score;
+    }
+
+    /**
+     * Calculates the distance for patterns of more than 64 characters.
+     *
+     * @param text The word to compare with the pattern.
+     * @param max  The maximal distance that is of interest.
+     * @return The LD between the pattern and {@code text}, or {@code max + 1} if the LD is greater than {@code max}.
+     */
+    private int distanceBlocks(CharSequence text, int max) {
+        int n = text.length();
+        long[] pv = new long[blocks];
+        long[] mv = new long[blocks];
+        Arrays.fill(pv, -1L);
+        int score = pattern.length();
+        for (int j = 0; j < n; j++) {
+            int c = indexOf(text.charAt(j));
+            // the first row of the DP matrix increases by one in every column
+            int carry = 1;
+            for (int b = 0; b < blocks; b++) {
+                long eq = c < 0 ? 0L : peq[c * blocks + b];
+                long highBit = b == blocks - 1 ? lastBit : 1L << 63;
+                long xv = eq | mv[b];
+                if (carry < 0) {
+                    eq |= 1L;
+                }
+                long xh = (((eq & pv[b]) + pv[b]) ^ pv[b]) | eq;
+                long ph = mv[b] | ~(xh | pv[b]);
+                long mh = pv[b] & xh;
+                int out = (ph & highBit) != 0 ? 1 : (mh & highBit) != 0 ? -1 : 0;
+                ph <<= 1;
+                mh <<= 1;
+                if (carry < 0) {
+                    mh |= 1L;
+                } else if (carry > 0) {
+                    ph |= 1L;
+                }
+                pv[b] = mh | ~(xv | ph);
+                mv[b] = ph & xv;
+                carry = out;
+            }
+            score += carry;
+            if (score - (n - j - 1) > max) {
+                return max + 1;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Finds a character in the alphabet of the pattern.
+     *
+     * @param c The character to look for.
+     * @return The index of {@code c} in {@link #alphabet}, or a negative value if the pattern does not contain it.
+     */
+    private int indexOf(char c) {
+        return c < ASCII ? asciiIndex[c] : Arrays.binarySearch(alphabet, c);
+    }
+}
@@ -1,10 +1,13 @@
 package api.didyoumean;
 
 /**
- * A simple enumerator. This will be used to tell the DYM which method to use.
+ * A simple enumerator. This will be used to tell the DYM which method to use.<br>
+ * {@link #DAMERAU} uses Levenshtein Automata that count the transposition of two adjacent characters as a single edit.
+ * {@link #COMPACT_BKTREE} uses a BK-tree that is stored in flat arrays, which takes far less memory than
+ * {@link #BKTREE}.
  *
  * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
  */
 public enum DYM {
-    BKTREE, LEVENSHTEIN
+    BKTREE, LEVENSHTEIN, DAMERAU, COMPACT_BKTREE
 }
@@ -2,12 +2,23 @@ package api.didyoumean;
 
 import api.database.IDBControl;
 import api.didyoumean.bktree.BKTree;
+import api.didyoumean.bktree.CompactBKTree;
+import api.didyoumean.levenshteinautomata.AutomatonCache;
+import api.didyoumean.levenshteinautomata.CompiledLevenshteinAutomaton;
 import api.didyoumean.levenshteinautomata.LevenshteinAutomata;
 import api.didyoumean.levenshteinautomata.LevenshteinAutomataFactory;
-import api.tree.Root;
+import api.tree.Trie;
+import api.tree.TrieType;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * The main class that holds all the information about the BK-trees and Levenshtein Automata.
@@ -16,25 +27,55 @@ import java.util.List;
  */
 public class DidYouMean {
     public static final int MAX_DISTANCE = 3;
+    /**
+     * Search terms of at most this length are searched with a radius of 1.
+     */
+    private static final int SHORT_TERM_LENGTH = 4;
+    /**
+     * Search terms of at most this length (and longer than {@link #SHORT_TERM_LENGTH}) are searched with a radius of 2.
+     */
+    private static final int MEDIUM_TERM_LENGTH = 7;
     private IDBControl databaseController;
-    private BKTree tree;
+    private BKTree tree; //null unless the method is BKTREE
+    private CompactBKTree compactTree; //null unless the method is COMPACT_BKTREE
     private int ldWeight;
     private DYM method;
-    private Root root; //trie for Levenshtein Automata
-    private LevenshteinAutomataFactory laf;
+    private final TrieType trieType;
+    private Trie root; //trie for Levenshtein Automata
+    /**
+     * Keeps words from being learned, and the method from being changed, while the trie or a BK-tree is searched.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean adaptive;
+    private AutomatonCache automatonCache; //null if automata are simulated
 
     /**
-     * Creates a new DidYouMean, with a given database and did-you-mean data structure.
+     * Creates a new DidYouMean, with a given database and did-you-mean data structure, and a
+     * {@link TrieType#NODES node-based} trie for Levenshtein Automata.
      *
      * @param idbControl The controller which connects to the database.
      * @param method     The method the DYM should be getting its values with.
      * @param ldWeight   The Levenshtein Distance weight to be used.
      */
     public DidYouMean(IDBControl idbControl, DYM method, int ldWeight) {
+        this(idbControl, method, ldWeight, TrieType.NODES);
+    }
+
+    /**
+     * Creates a new DidYouMean, with a given database and did-you-mean data structure.<br>
+     * The array-based tries ({@link TrieType#DOUBLE_ARRAY} and {@link TrieType#RADIX}) take far less memory, but can
+     * not be searched while a word is added, so this class keeps searches and {@link #learn learned words} apart.
+     *
+     * @param idbControl The controller which connects to the database.
+     * @param method     The method the DYM should be getting its values with.
+     * @param ldWeight   The Levenshtein Distance weight to be used.
+     * @param trieType   The type of the trie for Levenshtein Automata.
+     */
+    public DidYouMean(IDBControl idbControl, DYM method, int ldWeight, TrieType trieType) {
         this.databaseController = idbControl;
         this.method = method;
         this.ldWeight = ldWeight;
-        tree = new BKTree();
+        this.trieType = trieType;
         setup();
     }
 
@@ -43,16 +84,63 @@ public class DidYouMean {
      * Also creates a new tree from the data (takes a few seconds).
      */
     private void setup() {
-        root = new Root();
+        root = trieType.create();
+        Map<String, Integer> data = Collections.emptyMap();
         try {
-            databaseController.getData().entrySet().forEach(
+            data = databaseController.getData();
+            data.entrySet().forEach(
                     entry -> root.addOrIncrementWord(entry.getKey(), entry.getValue())
             );
-            laf = new LevenshteinAutomataFactory(MAX_DISTANCE);
-            getTree().buildTree(databaseController.getData());
         } catch (IOException e) {
             e.printStackTrace();
         }
+        buildBKTree(method, data);
+    }
+
+    /**
+     * Builds the BK-tree that a method searches, and drops the BK-tree of any other method, so that only the
+     * structure that is searched takes memory. Levenshtein Automata only search the trie, so they need no BK-tree.
+     *
+     * @param method The method whose BK-tree should be built.
+     * @param data   The data (word, score) the BK-tree should contain.
+     */
+    private void buildBKTree(DYM method, Map<String, Integer> data) {
+        tree = null;
+        compactTree = null;
+        if (method == DYM.BKTREE) {
+            tree = new BKTree();
+            tree.buildTree(data);
+        } else if (method == DYM.COMPACT_BKTREE) {
+            compactTree = new CompactBKTree();
+            compactTree.buildTree(data);
+        }
+    }
+
+    /**
+     * Collects the words in the trie, which holds every word of the database and every learned word.
+     *
+     * @return The words in the trie, with their weights.
+     */
+    private Map<String, Integer> getWords() {
+        Map<String, Integer> words = new HashMap<>();
+        collectWords(root.root(), words);
+        return words;
+    }
+
+    /**
+     * Adds the words below a node of the trie to a map.
+     *
+     * @param node  The handle of the node.
+     * @param words The map of words and their weights.
+     */
+    private void collectWords(int node, Map<String, Integer> words) {
+        for (int child = root.firstChild(node); child != Trie.NONE; child = root.nextSibling(child)) {
+            if (root.isLeaf(child)) {
+                words.put(root.word(child), root.weight(child));
+            } else {
+                collectWords(child, words);
+            }
+        }
     }
 
     /**
@@ -65,10 +153,10 @@ public class DidYouMean {
     public String getDYM(String searchString) {
         if (searchString == null) {
             throw new IllegalArgumentException("Search string is null in DidYouMean.getDYMFromString.");
-        } else if (method == DYM.BKTREE) {
-            return getTree().getDYM(searchString, getLdWeight());
-        } else if (method == DYM.LEVENSHTEIN) {
-            return LevenshteinAutomata.intersect(root, laf, searchString, getLdWeight());
+        } else if (method == DYM.BKTREE || method == DYM.COMPACT_BKTREE || method == DYM.LEVENSHTEIN
+                || method == DYM.DAMERAU) {
+            List<String> result = getDYM_N(searchString, 1);
+            return result.isEmpty() ? "" : result.get(0);
         } else {
             return null;
         }
@@ -86,34 +174,154 @@ public class DidYouMean {
     public List<String> getDYM_N(String searchString, int n) {
         if (searchString == null) {
             throw new IllegalArgumentException("Search string is null in DidYouMean.getDYMFromString.");
-        } else if (method == DYM.BKTREE) {
-            return getTree().getDYM_N(searchString, n, getLdWeight());
-        } else if (method == DYM.LEVENSHTEIN) {
-            return LevenshteinAutomata.intersectN(root, laf, searchString, n, getLdWeight());
+        }
+        lock.readLock().lock();
+        try {
+            if (method == DYM.BKTREE) {
+                return adaptive
+                        ? getTree().getDYM_N(searchString, n, getLdWeight(), getMaxDistance(searchString))
+                        : getTree().getDYM_N(searchString, n, getLdWeight());
+            } else if (method == DYM.COMPACT_BKTREE) {
+                return adaptive
+                        ? getCompactTree().getDYM_N(searchString, n, getLdWeight(), getMaxDistance(searchString))
+                        : getCompactTree().getDYM_N(searchString, n, getLdWeight());
+            } else if (method == DYM.LEVENSHTEIN || method == DYM.DAMERAU) {
+                return intersectN(searchString, n);
+            } else {
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersects the trie with the Levenshtein Automata of a search string. The read lock must be held.
+     *
+     * @param searchString The user's search string.
+     * @param n            The maximum number of suggestions to return.
+     * @return A list with at most n words the user probably meant when searching for {@code word}.
+     */
+    private List<String> intersectN(String searchString, int n) {
+        LevenshteinAutomataFactory laf = getFactory(method == DYM.DAMERAU);
+        CompiledLevenshteinAutomaton automaton = automatonCache == null ? null : automatonCache.get(laf, searchString);
+        if (automaton != null) {
+            return adaptive
+                    ? LevenshteinAutomata.intersectN(root, automaton, n, getLdWeight(), getMaxDistance(searchString))
+                    : LevenshteinAutomata.intersectN(root, automaton, n, getLdWeight());
+        }
+        return adaptive
+                ? LevenshteinAutomata.intersectN(root, laf, searchString, n, getLdWeight(),
+                getMaxDistance(searchString))
+                : LevenshteinAutomata.intersectN(root, laf, searchString, n, getLdWeight());
+    }
+
+    /**
+     * Gets the did-you-mean suggestions for several search strings at once, such as all words of a multi-word search
+     * or a log of searches. With Levenshtein Automata, the trie is traversed once for the whole batch.
+     *
+     * @param searchStrings The user's search strings.
+     * @param n             The maximum number of suggestions to return for every search string.
+     * @return For every search string, in the same order, a list with at most n words the user probably meant.
+     * Sorted from most likely to least likely.
+     * @throws IllegalArgumentException if {@code searchStrings} is or contains {@code null}.
+     */
+    public List<List<String>> getDYM_Batch(List<String> searchStrings, int n) {
+        if (searchStrings == null || searchStrings.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Search strings are null in DidYouMean.getDYM_Batch.");
+        } else if (method == DYM.BKTREE || method == DYM.COMPACT_BKTREE) {
+            List<List<String>> results = new ArrayList<>(searchStrings.size());
+            searchStrings.forEach(searchString -> results.add(getDYM_N(searchString, n)));
+            return results;
+        } else if (method == DYM.LEVENSHTEIN || method == DYM.DAMERAU) {
+            int[] maxDistances = new int[searchStrings.size()];
+            for (int i = 0; i < maxDistances.length; i++) {
+                maxDistances[i] = adaptive ? getMaxDistance(searchStrings.get(i)) : MAX_DISTANCE;
+            }
+            lock.readLock().lock();
+            try {
+                return LevenshteinAutomata.intersectBatch(root, getFactory(method == DYM.DAMERAU), searchStrings, n,
+                        getLdWeight(), maxDistances);
+            } finally {
+                lock.readLock().unlock();
+            }
         } else {
             return null;
         }
     }
 
+    /**
+     * Returns the maximal LD of the suggestions for a search string in adaptive mode. Short search strings get a
+     * smaller radius, as a radius of {@link #MAX_DISTANCE} would match a big part of the dictionary.
+     *
+     * @param searchString The user's search string.
+     * @return The search radius for {@code searchString}, at most {@link #MAX_DISTANCE}.
+     * @throws IllegalArgumentException if {@code searchString} is {@code null}.
+     */
+    public static int getMaxDistance(String searchString) {
+        if (searchString == null) {
+            throw new IllegalArgumentException("Search string is null in DidYouMean.getMaxDistance.");
+        }
+        int length = searchString.length();
+        if (length <= SHORT_TERM_LENGTH) {
+            return 1;
+        } else if (length <= MEDIUM_TERM_LENGTH) {
+            return 2;
+        } else {
+            return MAX_DISTANCE;
+        }
+    }
+
+    /**
+     * Returns the factory for the Levenshtein Automata. The factory is shared with every other instance of this class
+     * and only built once the first Levenshtein Automata query is done, so it costs nothing when only BK-trees are used.
+     *
+     * @param transpositions Whether the automata should count transpositions as a single edit.
+     * @return The factory for Levenshtein Automata with a maximal distance of {@link #MAX_DISTANCE}.
+     */
+    private LevenshteinAutomataFactory getFactory(boolean transpositions) {
+        return LevenshteinAutomataFactory.getInstance(MAX_DISTANCE, transpositions);
+    }
+
     /**
      * Returns the current main tree of this class.
      *
-     * @return The current tree of this class.
+     * @return The current tree of this class, or {@code null} if the method is not {@link DYM#BKTREE}.
      */
-    private BKTree getTree() {
+    BKTree getTree() {
         return tree;
     }
 
+    /**
+     * Returns the current compact tree of this class.
+     *
+     * @return The current compact tree of this class, or {@code null} if the method is not
+     * {@link DYM#COMPACT_BKTREE}.
+     */
+    CompactBKTree getCompactTree() {
+        return compactTree;
+    }
+
 
     /**
-     * Learns a word: adds the keyword to both trees if it doesn't exist yet, or increments the weight if it already exists.
+     * Learns a word: adds the keyword to the trie and to the BK-tree of the current method if it doesn't exist yet, or
+     * increments the weight if it already exists.
      *
      * @param word   the keyword that should be learned.
      * @param weight the amount the weight of the keyword will be incremented.
      */
     public void learn(String word, int weight) {
-        tree.addOrIncrement(word, weight);
-        root.addOrIncrementWord(word, weight);
+        lock.writeLock().lock();
+        try {
+            root.addOrIncrementWord(word, weight);
+            if (tree != null) {
+                tree.addOrIncrement(word, weight);
+            } else if (compactTree != null) {
+                compactTree.addOrIncrement(word, weight);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -125,12 +333,65 @@ public class DidYouMean {
     }
 
     /**
-     * Sets the current DYM method of this class.
+     * Sets the current DYM method of this class. When the new method searches another BK-tree than the current one,
+     * that BK-tree is built from the trie (including every learned word), and the current one is dropped.
      *
      * @param method The new DYM method of this class.
      */
     public void setMethod(DYM method) {
-        this.method = method;
+        lock.writeLock().lock();
+        try {
+            if ((method == DYM.BKTREE) != (tree != null) || (method == DYM.COMPACT_BKTREE) != (compactTree != null)) {
+                buildBKTree(method, getWords());
+            }
+            this.method = method;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indicates whether searches use an adaptive radius.
+     *
+     * @return {@code true} if searches use an adaptive radius; otherwise {@code false}.
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Enables or disables the adaptive radius. In adaptive mode, the radius of a search depends on the
+     * {@link #getMaxDistance(String) length of the search string}, and searches start with radius 0 and stop
+     * increasing it as soon as enough suggestions are found that can not be beaten by words at a greater distance.
+     *
+     * @param adaptive whether searches should use an adaptive radius.
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Returns the number of compiled Levenshtein Automata that are kept for repeated search strings.
+     *
+     * @return the capacity of the automaton cache, or 0 if automata are simulated for every search.
+     */
+    public int getAutomatonCacheSize() {
+        return automatonCache == null ? 0 : automatonCache.getCapacity();
+    }
+
+    /**
+     * Sets the number of compiled Levenshtein Automata that are kept for repeated search strings. With a positive size,
+     * the automaton of a search string is materialized as a DFA once, and reused while it is one of the {@code size}
+     * most recently used ones. With a size of 0, automata are simulated for every search.
+     *
+     * @param size the capacity of the automaton cache.
+     * @throws IllegalArgumentException if size is negative.
+     */
+    public void setAutomatonCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Tried to set a negative automaton cache size.");
+        }
+        automatonCache = size == 0 ? null : new AutomatonCache(size);
     }
 
     /**
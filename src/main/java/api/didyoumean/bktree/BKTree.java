@@ -1,24 +1,31 @@
 package api.didyoumean.bktree;
 
+import api.didyoumean.BitParallelLevenshtein;
 import api.didyoumean.DidYouMean;
-import api.utils.Pair;
+import api.utils.TopN;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.min;
 
 
 /**
- * The Class that handles all the logic behind its own api.tree. One class corresponds to one api.tree.
+ * The Class that handles all the logic behind its own api.tree. One instance corresponds to one api.tree, so several
+ * trees can be built and queried independently of each other.
  *
  * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
  */
 public class BKTree {
-    private static Node root;
+    private volatile Node root;
+    /**
+     * All the Nodes of the tree, mapped by their word.
+     */
+    private volatile Map<String, Node> index = new ConcurrentHashMap<>();
 
     /**
      * Calculates the Levenshtein Distance between 2 words.
@@ -52,30 +59,83 @@ public class BKTree {
         return costs[word2.length()];
     }
 
+    /**
+     * Calculates the Levenshtein Distance between 2 words, as long as it does not exceed {@code max}.<br>
+     * Only the diagonal band of width {@code 2 * max + 1} of the DP matrix is filled (Ukkonen), and the calculation is
+     * aborted as soon as every value in the current row exceeds {@code max}.
+     *
+     * @param word1 The first word.
+     * @param word2 The second word.
+     * @param max   The maximal distance that is of interest.
+     * @return The LD between word1 and word2, or {@code max + 1} if the LD is greater than {@code max}.
+     * @throws IllegalArgumentException if either {@code word1} or {@code word2} is null, or {@code max} is negative.
+     */
+    public static int calculateDistance(CharSequence word1, CharSequence word2, int max) {
+        if (word1 == null || word2 == null) {
+            throw new IllegalArgumentException("Null argument in BKTree.CalculateDistance.");
+        }
+        if (max < 0) {
+            throw new IllegalArgumentException("Negative max in BKTree.CalculateDistance.");
+        }
+        int n = word1.length();
+        int m = word2.length();
+        if (Math.abs(n - m) > max) {
+            return max + 1;
+        }
+        if (n == 0 || m == 0) {
+            return Math.max(n, m);
+        }
+        // the LD is never greater than the length of the longest word
+        max = Math.min(max, Math.max(n, m));
+        final int outside = max + 1;
+
+        int[] costs = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            costs[j] = j <= max ? j : outside;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            // nw = lev(i - 1, from - 1)
+            int nw = costs[from - 1];
+            costs[from - 1] = from == 1 && i <= max ? i : outside;
+            int rowMin = costs[from - 1];
+            for (int j = from; j <= to; j++) {
+                int costj = min(1 + min(costs[j], costs[j - 1]),
+                        word1.charAt(i - 1) == word2.charAt(j - 1) ? nw : nw + 1);
+                nw = costs[j];
+                costs[j] = min(costj, outside);
+                rowMin = min(rowMin, costs[j]);
+            }
+            if (to < m) {
+                costs[to + 1] = outside;
+            }
+            if (rowMin > max) {
+                return outside;
+            }
+        }
+        return costs[m];
+    }
+
     /**
      * Builds a new api.tree given a list of words and data to fill nodes with. Nodes contain
-     * the scores of a word.
+     * the scores of a word.<br>
+     * The tree is built top-down in parallel by a {@link BuildTask}, which chooses pivot words that balance the tree.
      *
      * @param data The data (word, score) the api.tree should contain.
      * @throws IllegalArgumentException if data is null.
      */
-    public void buildTree(Map<String, Integer> data) {
+    public synchronized void buildTree(Map<String, Integer> data) {
         if (data == null) {
             throw new IllegalArgumentException("Tried to make a api.tree with a datamap that is null.");
         }
-        Set<String> set = data.keySet();
-        List<String> list = new ArrayList<>();
-        list.addAll(set);
-        root = new Node(list.get(0), data.get(list.get(0)));
-        for (String s : list) {
-            if (list.indexOf(s) != 0) {
-                int score = 0;
-                if (data.keySet().contains(s)) {
-                    score = data.get(s);
-                }
-                root.addChild(new Node(s, score));
-            }
+        Map<String, Node> newIndex = new ConcurrentHashMap<>(data.size() * 4 / 3 + 1);
+        Node newRoot = null;
+        if (!data.isEmpty()) {
+            newRoot = ForkJoinPool.commonPool().invoke(new BuildTask(new ArrayList<>(data.keySet()), data, newIndex));
         }
+        index = newIndex;
+        root = newRoot;
     }
 
     /**
@@ -105,14 +165,116 @@ public class BKTree {
         if (word == null) {
             throw new IllegalArgumentException("Null word in BKTree.getDYM");
         }
-        return getRoot().searchTreeForNodes(word.toLowerCase(), DidYouMean.MAX_DISTANCE).entrySet().parallelStream()
-                .map(e -> new Pair<>(e.getKey().getScore() / Math.pow(e.getValue(), ldWeight), e.getKey()))
-                .sorted((p1, p2) -> p2.getLeft().compareTo(p1.getLeft()))
-                .limit(n)
-                .map(p -> p.getRight().getName())
+        Node start = getRoot();
+        if (start == null) {
+            return new ArrayList<>();
+        }
+        BitParallelLevenshtein term = new BitParallelLevenshtein(word.toLowerCase());
+        return toWords(search(start, term, n, ldWeight, DidYouMean.MAX_DISTANCE));
+    }
+
+    /**
+     * Gets a list of n 'did-you-mean' suggestions for a word, by searching with increasing radius.<br>
+     * The tree is searched with radius 0, then 1, and so on up to {@code maxDistance}. The search stops as soon as
+     * {@code n} suggestions are found whose scores can not be beaten by any word at a greater distance, so short
+     * searches for common words do not have to visit most of the tree.
+     *
+     * @param word        The word the user searched for.
+     * @param n           The maximum number of suggestions to return.
+     * @param ldWeight    The weight of the LD.
+     * @param maxDistance The maximal LD of the suggestions.
+     * @return A list with at most n words the user probably meant when searching for {@code word}.
+     * Sorted from most likely to least likely. May include {@code word}, if so this will be the first one.
+     * @throws IllegalArgumentException if {@code word} is null, or {@code maxDistance} is negative.
+     */
+    public List<String> getDYM_N(String word, int n, int ldWeight, int maxDistance) {
+        if (word == null) {
+            throw new IllegalArgumentException("Null word in BKTree.getDYM");
+        }
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Negative maxDistance in BKTree.getDYM");
+        }
+        Node start = getRoot();
+        if (start == null) {
+            return new ArrayList<>();
+        }
+        BitParallelLevenshtein term = new BitParallelLevenshtein(word.toLowerCase());
+        TopN<Node> best = null;
+        for (int radius = 0; radius <= maxDistance; radius++) {
+            best = search(start, term, n, ldWeight, radius);
+            if (best.isFull()
+                    && Double.compare(best.threshold(), getScore(start.getMaxScore(), radius + 1, ldWeight)) >= 0) {
+                break;
+            }
+        }
+        return toWords(best);
+    }
+
+    /**
+     * Searches a tree for the best Nodes within a given LD of a term.
+     *
+     * @param start      The root of the tree.
+     * @param term       The preprocessed term that Nodes should be compared with.
+     * @param n          The maximum number of Nodes to keep.
+     * @param ldWeight   The weight of the LD.
+     * @param errorRange The maximum LD a Node should have compared to {@code term}.
+     * @return The best Nodes by {@link #getScore score}.
+     */
+    private static TopN<Node> search(Node start, BitParallelLevenshtein term, int n, int ldWeight, int errorRange) {
+        TopN<Node> best = new TopN<>(n);
+        ForkJoinPool.commonPool().invoke(new SearchTask(start, term, errorRange, new BestNodes(best, ldWeight)));
+        return best;
+    }
+
+    /**
+     * Gets the words of the best Nodes.
+     *
+     * @param best The best Nodes.
+     * @return The words of {@code best}, sorted from best to worst.
+     */
+    private static List<String> toWords(TopN<Node> best) {
+        return best.toSortedList().stream()
+                .map(Node::getName)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * A collector that keeps the best Nodes by {@link #getScore score}, and skips subtrees whose best possible score
+     * can not beat the worst Node it keeps.
+     */
+    private static class BestNodes implements NodeCollector {
+        private final TopN<Node> best;
+        private final int ldWeight;
+
+        BestNodes(TopN<Node> best, int ldWeight) {
+            this.best = best;
+            this.ldWeight = ldWeight;
+        }
+
+        @Override
+        public void accept(Node node, int distance) {
+            best.offer(node, getScore(node.getScore(), distance, ldWeight));
+        }
+
+        @Override
+        public boolean wants(Node subtree, int minDistance) {
+            return !best.isFull()
+                    || Double.compare(getScore(subtree.getMaxScore(), minDistance, ldWeight), best.threshold()) > 0;
+        }
+    }
+
+    /**
+     * Calculates the score of a suggestion: its weight divided by its LD to the search term to the power ldWeight.
+     *
+     * @param score    The score of the suggested word.
+     * @param distance The LD between the suggested word and the search term.
+     * @param ldWeight The weight of the LD.
+     * @return The score of the suggestion.
+     */
+    static double getScore(int score, int distance, int ldWeight) {
+        return score / Math.pow(distance, ldWeight);
+    }
+
     /**
      * If the current tree does not contain this word: Adds a new {@code Node} to this tree with word {@code word}
      * and weight {@code weight}. If the current tree does contain the given {@code word}, the weight is incremented with the given amount.
@@ -128,14 +290,39 @@ public class BKTree {
         if (weight < 0) {
             throw new IllegalArgumentException("Parameter weight is negative in BKTree.addOrIncrement.");
         }
-        Node wordNode = getRoot().getWordInChildren(word);
+        Node wordNode = index.get(word);
         if (wordNode != null) {
             wordNode.setScore(wordNode.getScore() + weight);
         } else {
-            getRoot().addChild(new Node(word, weight));
+            wordNode = new Node(word, weight);
+            if (getRoot() == null) {
+                root = wordNode;
+            } else {
+                getRoot().addChild(wordNode);
+            }
+            index.put(word, wordNode);
         }
     }
 
+    /**
+     * Gets the Node of a word in this tree, in constant time.
+     *
+     * @param word The word to look for.
+     * @return The Node of {@code word}, or {@code null} if this tree does not contain {@code word}.
+     */
+    public Node getNode(String word) {
+        return index.get(word);
+    }
+
+    /**
+     * Returns the amount of words in this tree.
+     *
+     * @return the amount of words in this tree.
+     */
+    public int size() {
+        return index.size();
+    }
+
     /**
      * Gets the root of this api.tree.
      *
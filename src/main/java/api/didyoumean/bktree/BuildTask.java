@@ -0,0 +1,146 @@
+package api.didyoumean.bktree;
+
+import api.didyoumean.BitParallelLevenshtein;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A fork/join task that builds a (sub)tree of a BKTree from a list of words.<br>
+ * A pivot word is chosen as the root of the subtree, the other words are partitioned by their distance to the pivot,
+ * and the subtree of every partition is built by a separate task. Lists of at most {@link #SEQUENTIAL_THRESHOLD} words
+ * are built sequentially by the thread that finds them.<br>
+ * <br>
+ * The pivot of a big list is the word among a few random candidates that splits a random sample of the list most
+ * evenly, which keeps the tree shallow.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+class BuildTask extends RecursiveTask<Node> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Lists with at most this amount of words are not worth the overhead of a separate task.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 1024;
+    /**
+     * Lists with at most this amount of words take their first word as pivot.
+     */
+    private static final int PIVOT_THRESHOLD = 128;
+    private static final int PIVOT_CANDIDATES = 8;
+    private static final int PIVOT_SAMPLES = 64;
+
+    private final List<String> words;
+    private final Map<String, Integer> data;
+    private final Map<String, Node> index;
+
+    /**
+     * Creates a new task that builds a subtree.
+     *
+     * @param words The words the subtree should contain, may not be empty.
+     * @param data  The scores of (at least) the words in {@code words}.
+     * @param index The map every new Node is put in, mapped by its word. Must be thread-safe.
+     */
+    BuildTask(List<String> words, Map<String, Integer> data, Map<String, Node> index) {
+        this.words = words;
+        this.data = data;
+        this.index = index;
+    }
+
+    @Override
+    protected Node compute() {
+        String pivot = choosePivot(words);
+        Node node = new Node(pivot, data.get(pivot));
+        index.put(pivot, node);
+
+        boolean parallel = words.size() > SEQUENTIAL_THRESHOLD;
+        List<List<String>> partitions = partition(words, pivot);
+        BuildTask[] tasks = new BuildTask[partitions.size()];
+        for (int i = 0; i < tasks.length; i++) {
+            if (partitions.get(i) != null) {
+                tasks[i] = new BuildTask(partitions.get(i), data, index);
+            }
+        }
+        if (parallel) {
+            invokeAll(Arrays.stream(tasks).filter(Objects::nonNull).collect(Collectors.toList()));
+        }
+        Node[] children = new Node[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            if (tasks[i] != null) {
+                children[i] = parallel ? tasks[i].join() : tasks[i].compute();
+            }
+        }
+        node.setChildren(children);
+        return node;
+    }
+
+    /**
+     * Partitions a list of words by their distance to a pivot word. The distances of big lists are calculated in
+     * parallel.
+     *
+     * @param words The words to partition.
+     * @param pivot The pivot word.
+     * @return The words with LD {@code d} to {@code pivot} at index {@code d}, or {@code null} if there are none. The
+     * words that are equal to {@code pivot} are left out, so index 0 is always {@code null}.
+     */
+    static List<List<String>> partition(List<String> words, String pivot) {
+        BitParallelLevenshtein pivotWord = new BitParallelLevenshtein(pivot);
+        IntStream range = IntStream.range(0, words.size());
+        int[] distances = (words.size() > SEQUENTIAL_THRESHOLD ? range.parallel() : range)
+                .map(i -> pivotWord.distance(words.get(i)))
+                .toArray();
+        List<List<String>> partitions = new ArrayList<>();
+        for (int i = 0; i < distances.length; i++) {
+            int distance = distances[i];
+            if (distance == 0) {
+                continue;
+            }
+            while (partitions.size() <= distance) {
+                partitions.add(null);
+            }
+            if (partitions.get(distance) == null) {
+                partitions.set(distance, new ArrayList<>());
+            }
+            partitions.get(distance).add(words.get(i));
+        }
+        return partitions;
+    }
+
+    /**
+     * Chooses the word that becomes the root of the subtree of a list of words.
+     *
+     * @param words The words of the subtree, may not be empty.
+     * @return The word among a few candidates whose biggest partition of a sample of the words is the smallest.
+     */
+    static String choosePivot(List<String> words) {
+        if (words.size() <= PIVOT_THRESHOLD) {
+            return words.get(0);
+        }
+        Random random = new Random(words.size());
+        String best = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (int c = 0; c < PIVOT_CANDIDATES; c++) {
+            String candidate = words.get(random.nextInt(words.size()));
+            BitParallelLevenshtein candidateWord = new BitParallelLevenshtein(candidate);
+            int[] partitionSizes = new int[candidate.length() + 1];
+            int biggest = 0;
+            for (int s = 0; s < PIVOT_SAMPLES; s++) {
+                String sample = words.get(random.nextInt(words.size()));
+                int distance = Math.min(candidateWord.distance(sample, candidate.length()), candidate.length());
+                biggest = Math.max(biggest, ++partitionSizes[distance]);
+            }
+            if (biggest < bestSize) {
+                best = candidate;
+                bestSize = biggest;
+            }
+        }
+        return best;
+    }
+}
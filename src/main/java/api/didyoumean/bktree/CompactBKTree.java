@@ -0,0 +1,579 @@
+package api.didyoumean.bktree;
+
+import api.didyoumean.BitParallelLevenshtein;
+import api.didyoumean.DYM;
+import api.didyoumean.DidYouMean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static api.didyoumean.bktree.BKTree.getScore;
+
+/**
+ * A BK-tree with the same contract as {@link BKTree}, that stores all of its data in a few flat arrays instead of a
+ * {@link Node} object per word. It is used by {@link api.didyoumean.DidYouMean} for {@link DYM#COMPACT_BKTREE}.<br>
+ * Nodes are numbered in order of insertion, the root being node 0. The words are stored one after another in a shared
+ * {@code char[]} pool, the scores and the maximal score of every subtree in {@code int[]}s, and the children of a
+ * node in a shared {@code int[]} table in which every node owns a range of slots indexed by edge distance.<br>
+ * Like {@link BKTree}, the tree is built top-down with the pivots of {@link BuildTask}, searches visit the closest
+ * children first and skip subtrees whose maximal score can not beat the suggestions found so far, and the search
+ * radius can be {@link #getDYM_N(String, int, int, int) increased step by step}.<br>
+ * <br>
+ * Searches can run concurrently, insertions are exclusive.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class CompactBKTree {
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+    /**
+     * The words of all nodes. The word of node {@code i} ranges from {@code wordStart[i]} to
+     * {@code wordStart[i + 1]}.
+     */
+    private char[] pool;
+    private int[] wordStart;
+    private int[] scores;
+    /**
+     * The maximal score in the subtree of every node, see {@link Node#getMaxScore()}.
+     */
+    private int[] maxScores;
+    /**
+     * The children of all nodes. The child of node {@code i} with distance {@code d} is stored at
+     * {@code children[childStart[i] + d]} if {@code d < childSlots[i]}, and {@link #NONE} means there is no such child.
+     */
+    private int[] children;
+    private int childrenSize;
+    private int[] childStart;
+    private int[] childSlots;
+
+    /**
+     * Creates an empty tree.
+     */
+    public CompactBKTree() {
+        clear(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Builds a new tree given a map of words and their scores. Any words in this tree are removed.<br>
+     * The tree is built top-down: a {@link BuildTask#choosePivot pivot} becomes the root, and the subtree of every
+     * {@link BuildTask#partition partition} of the other words by their distance to it is built the same way.
+     *
+     * @param data The data (word, score) the tree should contain.
+     * @throws IllegalArgumentException if data is null.
+     */
+    public void buildTree(Map<String, Integer> data) {
+        if (data == null) {
+            throw new IllegalArgumentException("Tried to make a tree with a datamap that is null.");
+        }
+        lock.writeLock().lock();
+        try {
+            clear(Math.max(INITIAL_CAPACITY, data.size()));
+            if (!data.isEmpty()) {
+                build(new ArrayList<>(data.keySet()), data);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a 'did-you-mean' suggestion for a word.
+     *
+     * @param word     The word the user searched for.
+     * @param ldWeight The weight of the LD.
+     * @return The word the user probably meant when searching for {@code word}. May be the same as {@code word}.
+     * @throws IllegalArgumentException if {@code word} is null
+     */
+    public String getDYM(String word, int ldWeight) {
+        List<String> result = getDYM_N(word, 1, ldWeight);
+        return result.isEmpty() ? "" : result.get(0);
+    }
+
+    /**
+     * Gets a list of n 'did-you-mean' suggestions for a word.
+     *
+     * @param word     The word the user searched for.
+     * @param n        The maximum number of suggestions to return.
+     * @param ldWeight The weight of the LD.
+     * @return A list with at most n words the user probably meant when searching for {@code word}.
+     * Sorted from most likely to least likely. May include {@code word}, if so this will be the first one.
+     * @throws IllegalArgumentException if {@code word} is null
+     */
+    public List<String> getDYM_N(String word, int n, int ldWeight) {
+        if (word == null) {
+            throw new IllegalArgumentException("Null word in CompactBKTree.getDYM");
+        }
+        BitParallelLevenshtein term = new BitParallelLevenshtein(word.toLowerCase());
+        lock.readLock().lock();
+        try {
+            return toWords(search(term, n, ldWeight, DidYouMean.MAX_DISTANCE));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a list of n 'did-you-mean' suggestions for a word, by searching with increasing radius, like
+     * {@link BKTree#getDYM_N(String, int, int, int)}.
+     *
+     * @param word        The word the user searched for.
+     * @param n           The maximum number of suggestions to return.
+     * @param ldWeight    The weight of the LD.
+     * @param maxDistance The maximal LD of the suggestions.
+     * @return A list with at most n words the user probably meant when searching for {@code word}.
+     * Sorted from most likely to least likely. May include {@code word}, if so this will be the first one.
+     * @throws IllegalArgumentException if {@code word} is null, or {@code maxDistance} is negative.
+     */
+    public List<String> getDYM_N(String word, int n, int ldWeight, int maxDistance) {
+        if (word == null) {
+            throw new IllegalArgumentException("Null word in CompactBKTree.getDYM");
+        }
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("Negative maxDistance in CompactBKTree.getDYM");
+        }
+        BitParallelLevenshtein term = new BitParallelLevenshtein(word.toLowerCase());
+        lock.readLock().lock();
+        try {
+            TopNodes best = null;
+            for (int radius = 0; radius <= maxDistance; radius++) {
+                best = search(term, n, ldWeight, radius);
+                if (size == 0 || (best.isFull()
+                        && Double.compare(best.threshold(), getScore(maxScores[0], radius + 1, ldWeight)) >= 0)) {
+                    break;
+                }
+            }
+            return toWords(best);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches this tree for the best nodes within a given LD of a term. The caller must hold the read lock.<br>
+     * The search is depth-first with an explicit stack. Like {@link Node#searchTree}, the children of a node are
+     * searched in order of their minimal possible LD to the term, and a subtree is skipped if its maximal score at
+     * that LD can not beat the worst node that is kept, both when it is pushed and when it is popped.
+     *
+     * @param term       The preprocessed term that nodes should be compared with.
+     * @param n          The maximum number of nodes to keep.
+     * @param ldWeight   The weight of the LD.
+     * @param errorRange The maximum LD a node should have compared to {@code term}.
+     * @return The best nodes by {@link BKTree#getScore score}.
+     */
+    private TopNodes search(BitParallelLevenshtein term, int n, int ldWeight, int errorRange) {
+        TopNodes best = new TopNodes(n, ldWeight);
+        if (size == 0) {
+            return best;
+        }
+        Slice slice = new Slice();
+        int[] stack = new int[INITIAL_CAPACITY];
+        int[] minDistances = new int[INITIAL_CAPACITY];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            top--;
+            int node = stack[top];
+            if (!best.wants(maxScores[node], minDistances[top])) {
+                continue;
+            }
+            int slots = childSlots[node];
+            // children further than slots - 1 + errorRange away can not be within errorRange of the term
+            int distance = term.distance(slice.of(node), errorRange + Math.max(0, slots - 1));
+            if (distance <= errorRange) {
+                best.offer(node, getScore(scores[node], distance, ldWeight));
+            }
+            if (top + 2 * errorRange + 1 > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + 2 * errorRange + 1));
+                minDistances = Arrays.copyOf(minDistances, stack.length);
+            }
+            // the closest children are pushed last, so that they are searched first
+            for (int offset = errorRange; offset >= 0; offset--) {
+                for (int sign = 1; sign >= (offset == 0 ? 1 : -1); sign -= 2) {
+                    int i = distance + sign * offset;
+                    int child = i >= 0 && i < slots ? children[childStart[node] + i] : NONE;
+                    if (child != NONE && best.wants(maxScores[child], offset)) {
+                        stack[top] = child;
+                        minDistances[top++] = offset;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the words of the best nodes.
+     *
+     * @param best The best nodes.
+     * @return The words of {@code best}, sorted from best to worst.
+     */
+    private List<String> toWords(TopNodes best) {
+        List<String> result = new ArrayList<>();
+        for (int node : best.toSortedArray()) {
+            result.add(getWord(node));
+        }
+        return result;
+    }
+
+    /**
+     * If the current tree does not contain this word: Adds it to this tree with weight {@code weight}.
+     * If the current tree does contain the given {@code word}, the weight is incremented with the given amount.
+     *
+     * @param word   The word which should be added or changed.
+     * @param weight The amount the weight of the word will be incremented.
+     * @throws IllegalArgumentException if {@code word} is {@code null}, or {@code weight} is negative.
+     */
+    public void addOrIncrement(String word, int weight) {
+        if (word == null) {
+            throw new IllegalArgumentException("Parameter word is null in CompactBKTree.addOrIncrement.");
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("Parameter weight is negative in CompactBKTree.addOrIncrement.");
+        }
+        lock.writeLock().lock();
+        try {
+            insert(word, weight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the amount of words in this tree.
+     *
+     * @return the amount of words in this tree.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all words from this tree.
+     *
+     * @param capacity the amount of words to reserve space for.
+     */
+    private void clear(int capacity) {
+        size = 0;
+        pool = new char[capacity * 8];
+        wordStart = new int[capacity + 1];
+        scores = new int[capacity];
+        maxScores = new int[capacity];
+        children = new int[capacity * 2];
+        childrenSize = 0;
+        childStart = new int[capacity];
+        childSlots = new int[capacity];
+    }
+
+    /**
+     * Builds the subtree of a list of words. The caller must hold the write lock.
+     *
+     * @param words The words the subtree should contain, may not be empty.
+     * @param data  The scores of (at least) the words in {@code words}.
+     * @return The root of the subtree.
+     */
+    private int build(List<String> words, Map<String, Integer> data) {
+        String pivot = BuildTask.choosePivot(words);
+        int node = append(pivot, data.get(pivot));
+        List<List<String>> partitions = BuildTask.partition(words, pivot);
+        if (!partitions.isEmpty()) {
+            moveSlots(node, partitions.size());
+        }
+        for (int i = 0; i < partitions.size(); i++) {
+            if (partitions.get(i) != null) {
+                int child = build(partitions.get(i), data);
+                children[childStart[node] + i] = child;
+                maxScores[node] = Math.max(maxScores[node], maxScores[child]);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Increments the score of a word in this tree, or adds it to the tree. The insertion path of a word is the same
+     * as the path that leads to it, so no separate lookup is needed. The maximal scores along the path are raised
+     * afterwards. The caller must hold the write lock.
+     *
+     * @param word  The word which should be added or changed.
+     * @param score The amount the score of the word will be incremented.
+     */
+    private void insert(String word, int score) {
+        if (size == 0) {
+            append(word, score);
+            return;
+        }
+        BitParallelLevenshtein pattern = new BitParallelLevenshtein(word);
+        Slice slice = new Slice();
+        int[] path = new int[INITIAL_CAPACITY];
+        int depth = 0;
+        int node = 0;
+        int newScore;
+        while (true) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = node;
+            int distance = pattern.distance(slice.of(node));
+            if (distance == 0) {
+                scores[node] += score;
+                newScore = scores[node];
+                break;
+            }
+            int child = distance < childSlots[node] ? children[childStart[node] + distance] : NONE;
+            if (child == NONE) {
+                setChild(node, distance, append(word, score));
+                newScore = score;
+                break;
+            }
+            node = child;
+        }
+        for (int i = 0; i < depth; i++) {
+            maxScores[path[i]] = Math.max(maxScores[path[i]], newScore);
+        }
+    }
+
+    /**
+     * Adds a node without children for a word. The caller must hold the write lock.
+     *
+     * @param word  The word of the new node.
+     * @param score The score of the new node.
+     * @return The new node.
+     */
+    private int append(String word, int score) {
+        if (size == scores.length) {
+            int capacity = size * 2;
+            wordStart = Arrays.copyOf(wordStart, capacity + 1);
+            scores = Arrays.copyOf(scores, capacity);
+            maxScores = Arrays.copyOf(maxScores, capacity);
+            childStart = Arrays.copyOf(childStart, capacity);
+            childSlots = Arrays.copyOf(childSlots, capacity);
+        }
+        int start = wordStart[size];
+        if (start + word.length() > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, start + word.length()));
+        }
+        word.getChars(0, word.length(), pool, start);
+        wordStart[size + 1] = start + word.length();
+        scores[size] = score;
+        maxScores[size] = score;
+        childStart[size] = 0;
+        childSlots[size] = 0;
+        return size++;
+    }
+
+    /**
+     * Sets the child of a node for a given distance. If the node has no slot for this distance yet, its slots are
+     * moved to the end of the children table with at least twice the room. The caller must hold the write lock.
+     *
+     * @param node     The parent node.
+     * @param distance The distance between the parent and the child.
+     * @param child    The child node.
+     */
+    private void setChild(int node, int distance, int child) {
+        if (distance >= childSlots[node]) {
+            moveSlots(node, Math.max(distance + 1, childSlots[node] * 2));
+        }
+        children[childStart[node] + distance] = child;
+    }
+
+    /**
+     * Moves the slots of a node to the end of the children table, with room for more children. The caller must hold
+     * the write lock.
+     *
+     * @param node  The node.
+     * @param slots The new amount of slots of {@code node}, at least its current amount.
+     */
+    private void moveSlots(int node, int slots) {
+        if (childrenSize + slots > children.length) {
+            children = Arrays.copyOf(children, Math.max(children.length * 2, childrenSize + slots));
+        }
+        Arrays.fill(children, childrenSize, childrenSize + slots, NONE);
+        System.arraycopy(children, childStart[node], children, childrenSize, childSlots[node]);
+        childStart[node] = childrenSize;
+        childSlots[node] = slots;
+        childrenSize += slots;
+    }
+
+    /**
+     * Returns the word of a node.
+     *
+     * @param node The node.
+     * @return The word of {@code node}.
+     */
+    private String getWord(int node) {
+        return new String(pool, wordStart[node], wordStart[node + 1] - wordStart[node]);
+    }
+
+    /**
+     * The best nodes of a search by score, like a {@link api.utils.TopN} of nodes, without boxing them: a min-heap of
+     * node numbers and scores.
+     */
+    private static final class TopNodes {
+        private final int[] nodes;
+        private final double[] scores;
+        private final int ldWeight;
+        private int size;
+
+        /**
+         * Creates an empty heap.
+         *
+         * @param n        the maximum amount of nodes to keep.
+         * @param ldWeight the weight of the LD.
+         * @throws IllegalArgumentException if {@code n} is negative.
+         */
+        TopNodes(int n, int ldWeight) {
+            if (n < 0) {
+                throw new IllegalArgumentException("Tried to search for a negative amount of suggestions.");
+            }
+            nodes = new int[n];
+            scores = new double[nodes.length];
+            this.ldWeight = ldWeight;
+        }
+
+        /**
+         * Offers a node. It is kept if there are less than {@code n} nodes yet, or if its score is higher than the
+         * lowest score (which is then removed).
+         *
+         * @param node  the node.
+         * @param score the score of {@code node}.
+         */
+        void offer(int node, double score) {
+            if (size < nodes.length) {
+                int i = size++;
+                // sift up
+                while (i > 0 && Double.compare(score, scores[(i - 1) / 2]) < 0) {
+                    nodes[i] = nodes[(i - 1) / 2];
+                    scores[i] = scores[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                nodes[i] = node;
+                scores[i] = score;
+            } else if (size > 0 && Double.compare(score, scores[0]) > 0) {
+                siftDown(node, score, size);
+            }
+        }
+
+        /**
+         * Puts a node at the top of the heap, and moves it down to its place.
+         *
+         * @param node  the node.
+         * @param score the score of {@code node}.
+         * @param end   the size of the heap.
+         */
+        private void siftDown(int node, double score, int end) {
+            int i = 0;
+            while (true) {
+                int smallest = 2 * i + 1;
+                if (smallest >= end) {
+                    break;
+                }
+                if (smallest + 1 < end && Double.compare(scores[smallest + 1], scores[smallest]) < 0) {
+                    smallest++;
+                }
+                if (Double.compare(scores[smallest], score) >= 0) {
+                    break;
+                }
+                nodes[i] = nodes[smallest];
+                scores[i] = scores[smallest];
+                i = smallest;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        /**
+         * Indicates whether {@code n} nodes are kept.
+         *
+         * @return {@code true} if no more nodes are kept without removing one; otherwise {@code false}.
+         */
+        boolean isFull() {
+            return size == nodes.length;
+        }
+
+        /**
+         * Returns the lowest score a node must beat to be kept.
+         *
+         * @return the lowest score if {@link #isFull()}; otherwise {@link Double#NEGATIVE_INFINITY}.
+         */
+        double threshold() {
+            return size > 0 && isFull() ? scores[0] : Double.NEGATIVE_INFINITY;
+        }
+
+        /**
+         * Indicates whether a subtree may contain a node that would be kept, like {@link NodeCollector#wants}.
+         *
+         * @param maxScore    the maximal score in the subtree.
+         * @param minDistance a lower bound on the LD between any node in the subtree and the term.
+         * @return {@code false} if no node in the subtree can beat the {@link #threshold()}; otherwise {@code true}.
+         */
+        boolean wants(int maxScore, int minDistance) {
+            return !isFull() || Double.compare(getScore(maxScore, minDistance, ldWeight), threshold()) > 0;
+        }
+
+        /**
+         * Returns the kept nodes. Empties the heap.
+         *
+         * @return the nodes, sorted from highest to lowest score.
+         */
+        int[] toSortedArray() {
+            int[] result = new int[size];
+            for (int end = size - 1; end >= 0; end--) {
+                result[end] = nodes[0];
+                siftDown(nodes[end], scores[end], end);
+            }
+            size = 0;
+            return result;
+        }
+    }
+
+    /**
+     * A view on the word of a node in the pool, so that words can be compared without copying them.
+     */
+    private class Slice implements CharSequence {
+        private int start;
+        private int length;
+
+        /**
+         * Points this view to the word of a node.
+         *
+         * @param node The node.
+         * @return This view.
+         */
+        Slice of(int node) {
+            start = wordStart[node];
+            length = wordStart[node + 1] - start;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return pool[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(pool, start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return new String(pool, start, length);
+        }
+    }
+}
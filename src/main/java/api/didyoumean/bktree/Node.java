@@ -1,11 +1,11 @@
 package api.didyoumean.bktree;
 
 
+import api.didyoumean.BitParallelLevenshtein;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
-import static api.didyoumean.bktree.BKTree.calculateDistance;
 
 /**
  * The Class representing a Node in a BKTree.
@@ -13,9 +13,21 @@ import static api.didyoumean.bktree.BKTree.calculateDistance;
  * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
  */
 public class Node {
+    private static final Node[] NO_CHILDREN = new Node[0];
     private String name;
-    private Map<Integer, Node> children;
-    private int score;
+    /**
+     * The children of this Node, indexed by their distance to this Node. Replaced (never modified) when a child is
+     * added, so that searches can run concurrently with insertions.
+     */
+    private volatile Node[] children;
+    private volatile int score;
+    /**
+     * The maximal score in the subtree of this Node. Volatile, like {@link #score}, because concurrent searches prune
+     * subtrees with it: a stale value could skip a subtree whose best score was just raised.
+     */
+    private volatile int maxScore;
+    private Node parent;
+    private int size = 1;
 
     /**
      * Creates a new Node with a certain word. Has no children and a score of 0.
@@ -42,7 +54,8 @@ public class Node {
         }
         this.name = word;
         this.score = score;
-        children = new ConcurrentHashMap<>();
+        this.maxScore = score;
+        children = NO_CHILDREN;
     }
 
     /**
@@ -55,12 +68,49 @@ public class Node {
         if (child == null) {
             throw new IllegalArgumentException("Given Node is null in Node.addChild");
         }
-        int distance = calculateDistance(child.getName(), name);
-        if (children.get(distance) != null) {
-            children.get(distance).addChild(child);
+        addChild(child, new BitParallelLevenshtein(child.getName()));
+    }
+
+    /**
+     * Adds a new child to this node.
+     *
+     * @param child The Node that this Node should be the parent of.
+     * @param word  The preprocessed word of {@code child}.
+     */
+    private void addChild(Node child, BitParallelLevenshtein word) {
+        int distance = word.distance(name);
+        size += child.size;
+        maxScore = Math.max(maxScore, child.maxScore);
+        Node[] current = children;
+        if (distance < current.length && current[distance] != null) {
+            current[distance].addChild(child, word);
         } else {
-            children.put(distance, child);
+            child.parent = this;
+            Node[] updated = Arrays.copyOf(current, Math.max(current.length, distance + 1));
+            updated[distance] = child;
+            children = updated;
+        }
+    }
+
+    /**
+     * Replaces the children of this Node, for building a tree bottom-up.
+     * Every child must have the LD to this Node that is its index in {@code children}.
+     *
+     * @param children The new children of this Node, indexed by their distance to this Node.
+     */
+    void setChildren(Node[] children) {
+        int newSize = 1;
+        int newMaxScore = score;
+        for (Node child : children) {
+            if (child != null) {
+                child.parent = this;
+                newSize += child.size;
+                newMaxScore = Math.max(newMaxScore, child.maxScore);
+            }
         }
+        size = newSize;
+        maxScore = newMaxScore;
+        this.children = children;
     }
 
     /**
@@ -73,12 +123,40 @@ public class Node {
     }
 
     /**
-     * Returns the children of this node.
+     * Returns the children of this node, mapped by their distance to this node.
+     * Changes to the returned map are not reflected in this node.
      *
      * @return The children of this node.
      */
     public Map<Integer, Node> getChildren() {
-        return children;
+        Map<Integer, Node> result = new HashMap<>();
+        Node[] current = children;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != null) {
+                result.put(i, current[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the child of this node with a given distance to this node.
+     *
+     * @param distance The distance of the child to this node.
+     * @return The child with LD {@code distance} to this node, or {@code null} if there is no such child.
+     */
+    public Node getChild(int distance) {
+        Node[] current = children;
+        return distance >= 0 && distance < current.length ? current[distance] : null;
+    }
+
+    /**
+     * Returns the amount of Nodes in the subtree of this Node, including this Node.
+     *
+     * @return the size of the subtree of this Node.
+     */
+    public int size() {
+        return size;
     }
 
     /**
@@ -92,11 +170,25 @@ public class Node {
 
     /**
      * Changes the score of this Node.
+     * Also changes the maximal score of the ancestors of this Node if necessary.
      *
      * @param score The new score of this Node.
      */
     public void setScore(int score) {
         this.score = score;
+        for (Node n = this; n != null && n.maxScore < score; n = n.parent) {
+            n.maxScore = score;
+        }
+    }
+
+    /**
+     * Returns an upper bound of the scores in the subtree of this Node. This is the maximal score in the subtree,
+     * unless a score has been decreased.
+     *
+     * @return at least the maximal score of all Nodes in the subtree of this Node.
+     */
+    public int getMaxScore() {
+        return maxScore;
     }
 
     /**
@@ -114,15 +206,71 @@ public class Node {
             throw new IllegalArgumentException("Negative errorRange in searchTreeForNodes.");
         }
         Map<Node, Integer> result = new HashMap<>();
-        int distance = calculateDistance(term, getName());
+        searchTree(new BitParallelLevenshtein(term), errorRange, result::put);
+        return result;
+    }
+
+    /**
+     * Sequentially passes all the Nodes within a certain LD of a word from this (sub)tree to a collector.<br>
+     * Children are searched in order of their minimal possible LD to the term, so that good Nodes are found early,
+     * and are skipped if the collector does not want anything from their subtree.
+     *
+     * @param term       The preprocessed term that Nodes should be compared with.
+     * @param errorRange The maximum LD a Node should have compared to {@code term}.
+     * @param collector  The collector of every Node that is found, along with its LD to {@code term}.
+     */
+    void searchTree(BitParallelLevenshtein term, int errorRange, NodeCollector collector) {
+        Node[] current = children;
+        int distance = distanceTo(term, errorRange, current);
         if (distance <= errorRange) {
-            result.put(this, distance);
+            collector.accept(this, distance);
+        }
+        for (int offset = 0; offset <= errorRange; offset++) {
+            searchChild(term, errorRange, collector, current, distance - offset, offset);
+            if (offset != 0) {
+                searchChild(term, errorRange, collector, current, distance + offset, offset);
+            }
         }
-        getChildren().values()
-                .parallelStream()
-                .filter(n -> Math.abs(calculateDistance(n.getName(), getName()) - distance) <= errorRange)
-                .forEach(n -> result.putAll(n.searchTreeForNodes(term, errorRange)));
-        return result;
+    }
+
+    /**
+     * Searches the subtree of a child, if it exists and the collector wants anything from it.
+     *
+     * @param term        The preprocessed term that Nodes should be compared with.
+     * @param errorRange  The maximum LD a Node should have compared to {@code term}.
+     * @param collector   The collector of every Node that is found.
+     * @param current     The children of this Node.
+     * @param i           The distance of the child to this Node.
+     * @param minDistance The minimal LD between the term and any Node in the subtree of the child.
+     */
+    private void searchChild(BitParallelLevenshtein term, int errorRange, NodeCollector collector, Node[] current, int i,
+                             int minDistance) {
+        if (i >= 0 && i < current.length && current[i] != null && collector.wants(current[i], minDistance)) {
+            current[i].searchTree(term, errorRange, collector);
+        }
+    }
+
+    /**
+     * Calculates the LD between a term and the word of this Node, as far as it is needed to search the children.
+     *
+     * @param term       The preprocessed term that this Node should be compared with.
+     * @param errorRange The maximum LD of the search.
+     * @param current    The children of this Node.
+     * @return The LD between {@code term} and this Node, or a value greater than {@code errorRange} plus the
+     * distance of any child if the LD is greater than that.
+     */
+    int distanceTo(BitParallelLevenshtein term, int errorRange, Node[] current) {
+        // children further than current.length - 1 + errorRange away can not be within errorRange of the term
+        return term.distance(getName(), errorRange + Math.max(0, current.length - 1));
+    }
+
+    /**
+     * Returns the children of this node, indexed by their distance to this node. The array must not be modified.
+     *
+     * @return The children of this node, with {@code null} for distances without a child.
+     */
+    Node[] getChildArray() {
+        return children;
     }
 
     /**
@@ -133,7 +281,10 @@ public class Node {
      * @return The node that corresponds to the given word, or null if there is no such Node.
      */
     public Node getWordInChildren(String word) {
-        for (Node node : getChildren().values()) {
+        for (Node node : children) {
+            if (node == null) {
+                continue;
+            }
             if (node.getName().equals(word)) {
                 return node;
             }
@@ -0,0 +1,31 @@
+package api.didyoumean.bktree;
+
+/**
+ * Collects the Nodes that are found by a search in a BKTree.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+@FunctionalInterface
+interface NodeCollector {
+
+    /**
+     * Collects a Node that is within the error range of the search.
+     *
+     * @param node     the Node that was found.
+     * @param distance the LD between the Node and the search term.
+     */
+    void accept(Node node, int distance);
+
+    /**
+     * Indicates whether a subtree may contain a Node that this collector still wants, so that the search can skip
+     * the subtree if not.<br>
+     * By default every subtree is searched.
+     *
+     * @param subtree     the root of the subtree.
+     * @param minDistance a lower bound on the LD between any Node in the subtree and the search term.
+     * @return {@code false} if no Node in {@code subtree} needs to be collected; otherwise {@code true}
+     */
+    default boolean wants(Node subtree, int minDistance) {
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package api.didyoumean.bktree;
+
+import api.didyoumean.BitParallelLevenshtein;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A fork/join task that searches a (sub)tree of a BKTree for all Nodes within a certain LD of a term.<br>
+ * Subtrees of at most {@link #SEQUENTIAL_THRESHOLD} Nodes are searched sequentially by the thread that finds them,
+ * bigger subtrees are searched as separate tasks so that idle threads can steal them.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+class SearchTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Subtrees with at most this amount of Nodes are not worth the overhead of a separate task.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private final Node node;
+    private final BitParallelLevenshtein term;
+    private final int errorRange;
+    private final NodeCollector collector;
+
+    /**
+     * Creates a new task that searches the subtree of a Node.
+     *
+     * @param node       The root of the subtree to search in.
+     * @param term       The preprocessed term that Nodes should be compared with.
+     * @param errorRange The maximum LD a Node should have compared to {@code term}.
+     * @param collector  The collector of every Node that is found, along with its LD to {@code term}.
+     *                   Must be thread-safe.
+     */
+    SearchTask(Node node, BitParallelLevenshtein term, int errorRange, NodeCollector collector) {
+        this.node = node;
+        this.term = term;
+        this.errorRange = errorRange;
+        this.collector = collector;
+    }
+
+    @Override
+    protected void compute() {
+        if (node.size() <= SEQUENTIAL_THRESHOLD) {
+            node.searchTree(term, errorRange, collector);
+            return;
+        }
+        Node[] children = node.getChildArray();
+        int distance = node.distanceTo(term, errorRange, children);
+        if (distance <= errorRange) {
+            collector.accept(node, distance);
+        }
+        List<SearchTask> tasks = new ArrayList<>();
+        int to = Math.min(children.length - 1, distance + errorRange);
+        for (int i = Math.max(0, distance - errorRange); i <= to; i++) {
+            if (children[i] != null && collector.wants(children[i], Math.abs(distance - i))) {
+                tasks.add(new SearchTask(children[i], term, errorRange, collector));
+            }
+        }
+        invokeAll(tasks);
+    }
+}
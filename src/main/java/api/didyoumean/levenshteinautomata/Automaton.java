@@ -0,0 +1,58 @@
+package api.didyoumean.levenshteinautomata;
+
+/**
+ * A Levenshtein automaton for one word, with primitive states, as used by the trie intersection of
+ * {@link LevenshteinAutomata}.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+interface Automaton {
+
+    /**
+     * Returns the initial state of this automaton.
+     *
+     * @return the initial state.
+     */
+    long getInitState();
+
+    /**
+     * Returns the next state for a given symbol.
+     *
+     * @param state the current state, not {@link LevenshteinAutomataFactory#FAILURE_STATE}
+     * @param c     the next symbol
+     * @return the next state, or {@link LevenshteinAutomataFactory#FAILURE_STATE} if this transition results in a
+     * failure state.
+     */
+    long step(long state, char c);
+
+    /**
+     * Indicates whether a state is accepting.
+     *
+     * @param state the state
+     * @return {@code true} if accepting, otherwise {@code false}
+     */
+    boolean isAccepting(long state);
+
+    /**
+     * Gets the Levenshtein distance corresponding to an accepting state.
+     *
+     * @param state the state
+     * @return the Levenshtein distance between the word of this automaton and the input that led to {@code state}.
+     */
+    int getDistance(long state);
+
+    /**
+     * Returns the minimal Levenshtein distance possible, starting from a state.
+     *
+     * @param state the state
+     * @return the lowest Levenshtein distance possible.
+     */
+    int getMinEdits(long state);
+
+    /**
+     * Returns the maximal distance of this automaton.
+     *
+     * @return the maximal Levenshtein distance of the words this automaton accepts.
+     */
+    int getMaxDistance();
+}
@@ -0,0 +1,87 @@
+package api.didyoumean.levenshteinautomata;
+
+import api.utils.Pair;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of {@link CompiledLevenshteinAutomaton compiled automata}, keyed by word and factory (and so by
+ * maximal distance). When the cache is full, the least recently used automaton is dropped.<br>
+ * <br>
+ * Instances are thread-safe.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class AutomatonCache {
+    private final int capacity;
+    private final Map<Pair<LevenshteinAutomataFactory, String>, CompiledLevenshteinAutomaton> automata;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the maximal number of automata in this cache.
+     * @throws IllegalArgumentException if {@code capacity} is not positive.
+     */
+    public AutomatonCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity is not positive in AutomatonCache.");
+        }
+        this.capacity = capacity;
+        this.automata = new LinkedHashMap<Pair<LevenshteinAutomataFactory, String>, CompiledLevenshteinAutomaton>(
+                16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Pair<LevenshteinAutomataFactory, String>, CompiledLevenshteinAutomaton> eldest) {
+                return size() > AutomatonCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled automaton of a word, compiling it if it is not in this cache.
+     *
+     * @param laf  the factory for simulating Levenshtein automata.
+     * @param word the word of the automaton.
+     * @return the automaton of {@code word}, with the maximal distance of {@code laf}.
+     * @throws IllegalArgumentException if {@code laf} or {@code word} is null.
+     */
+    public CompiledLevenshteinAutomaton get(LevenshteinAutomataFactory laf, String word) {
+        if (laf == null || word == null) {
+            throw new IllegalArgumentException("Null argument in AutomatonCache.get.");
+        }
+        Pair<LevenshteinAutomataFactory, String> key = new Pair<>(laf, word);
+        CompiledLevenshteinAutomaton automaton;
+        synchronized (automata) {
+            automaton = automata.get(key);
+        }
+        if (automaton == null) {
+            // compiled outside of the lock, so other words are not blocked
+            automaton = new CompiledLevenshteinAutomaton(laf, word);
+            synchronized (automata) {
+                automata.put(key, automaton);
+            }
+        }
+        return automaton;
+    }
+
+    /**
+     * Returns the maximal number of automata in this cache.
+     *
+     * @return the capacity of this cache.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of automata in this cache.
+     *
+     * @return the size of this cache.
+     */
+    public int size() {
+        synchronized (automata) {
+            return automata.size();
+        }
+    }
+}
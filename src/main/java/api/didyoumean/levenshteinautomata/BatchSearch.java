@@ -0,0 +1,174 @@
+package api.didyoumean.levenshteinautomata;
+
+import api.tree.Trie;
+import api.utils.TopN;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.Math.pow;
+
+/**
+ * A depth-first intersection of the dictionary tree with the automata of several words at once.<br>
+ * Every element of the tree is visited once for the whole batch: the states of all words that can still reach a
+ * result below the element are advanced together, and a subtree is only skipped when no word can. A word drops out of
+ * a subtree when its automaton fails, when it needs more edits than its radius, or when the best score it could reach
+ * there can not beat the {@code n} results it already has. Results are kept as {@link Trie#termId term ids}, and only
+ * the kept ones are turned into strings at the end.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+class BatchSearch {
+    private final Trie tree;
+    private final Automaton[] automata;
+    private final int[] radii;
+    private final int ldWeight;
+    private final List<TopN<Integer>> best;
+    /**
+     * For every depth, the states of the words that are still searched at that depth.
+     */
+    private long[][] states = new long[0][];
+    /**
+     * For every depth, the indices of the words that are still searched at that depth, in the order of {@link #states}.
+     */
+    private int[][] words = new int[0][];
+
+    /**
+     * Prepares a batch search.
+     *
+     * @param tree     the dictionary tree to search in.
+     * @param automata the automata of the words.
+     * @param radii    the maximal Levenshtein distance of the results of every word.
+     * @param n        the amount of results of every word.
+     * @param ldWeight The weight of the LD.
+     */
+    BatchSearch(Trie tree, Automaton[] automata, int[] radii, int n, int ldWeight) {
+        this.tree = tree;
+        this.automata = automata;
+        this.radii = radii;
+        this.ldWeight = ldWeight;
+        best = new ArrayList<>(automata.length);
+        for (int i = 0; i < automata.length; i++) {
+            best.add(new TopN<>(n));
+        }
+    }
+
+    /**
+     * Intersects the dictionary tree with all automata.
+     *
+     * @return for every word, at most {@code n} strings similar to it, sorted from highest to lowest score.
+     */
+    List<List<String>> search() {
+        ensureDepth(0);
+        for (int i = 0; i < automata.length; i++) {
+            states[0][i] = automata[i].getInitState();
+            words[0][i] = i;
+        }
+        if (automata.length > 0) {
+            visit(tree.root(), 0, automata.length);
+        }
+        List<List<String>> results = new ArrayList<>(automata.length);
+        for (TopN<Integer> b : best) {
+            List<Integer> termIds = b.toSortedList();
+            List<String> result = new ArrayList<>(termIds.size());
+            termIds.forEach(termId -> result.add(tree.term(termId)));
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Visits the children of an element.
+     *
+     * @param element the handle of the element.
+     * @param depth   the depth of {@code element}.
+     * @param count   the amount of words that are still searched below {@code element}.
+     */
+    private void visit(int element, int depth, int count) {
+        ensureDepth(depth + 1);
+        long[] current = states[depth];
+        int[] currentWords = words[depth];
+        long[] next = states[depth + 1];
+        int[] nextWords = words[depth + 1];
+        for (int child = tree.firstChild(element); child != Trie.NONE; child = tree.nextSibling(child)) {
+            if (tree.isLeaf(child)) {
+                offer(child, current, currentWords, count);
+                continue;
+            }
+            int nextCount = 0;
+            for (int k = 0; k < count; k++) {
+                int i = currentWords[k];
+                long out = LevenshteinAutomata.step(tree, child, automata[i], current[k]);
+                if (out != LevenshteinAutomataFactory.FAILURE_STATE && isPromising(i, child, out)) {
+                    next[nextCount] = out;
+                    nextWords[nextCount++] = i;
+                }
+            }
+            if (nextCount > 0) {
+                visit(child, depth + 1, nextCount);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether a word can still reach a result below an element.
+     *
+     * @param i     the index of the word.
+     * @param child the handle of the element.
+     * @param state the state of the word at {@code child}.
+     * @return {@code false} if no result below {@code child} is within the radius of the word, or would be kept.
+     */
+    private boolean isPromising(int i, int child, long state) {
+        int minEdits = automata[i].getMinEdits(state);
+        if (minEdits > radii[i]) {
+            return false;
+        }
+        TopN<Integer> results = best.get(i);
+        // the maximal weight below child divided by the minimal distance bounds the score of every leaf below it
+        double bound = tree.weight(child) / pow(minEdits, ldWeight);
+        return !results.isFull() || Double.compare(bound, results.threshold()) > 0;
+    }
+
+    /**
+     * Offers a word of the dictionary to every search that accepts it.
+     *
+     * @param leaf  the handle of the leaf of the word.
+     * @param state the states of the searched words at the parent of {@code leaf}.
+     * @param ids   the indices of the searched words.
+     * @param count the amount of searched words.
+     */
+    private void offer(int leaf, long[] state, int[] ids, int count) {
+        Integer termId = null;
+        for (int k = 0; k < count; k++) {
+            int i = ids[k];
+            if (automata[i].isAccepting(state[k])) {
+                int distance = automata[i].getDistance(state[k]);
+                if (distance <= radii[i]) {
+                    if (termId == null) {
+                        termId = tree.termId(leaf);
+                    }
+                    best.get(i).offer(termId, tree.weight(leaf) / pow(distance, ldWeight));
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes sure there are buffers for the states at a depth.
+     *
+     * @param depth the depth.
+     */
+    private void ensureDepth(int depth) {
+        if (depth >= states.length) {
+            int size = Math.max(depth + 1, states.length * 2);
+            int old = states.length;
+            states = Arrays.copyOf(states, size);
+            words = Arrays.copyOf(words, size);
+            for (int d = old; d < size; d++) {
+                states[d] = new long[automata.length];
+                words[d] = new int[automata.length];
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package api.didyoumean.levenshteinautomata;
+
+import java.util.Arrays;
+
+/**
+ * The characteristic vectors (see 4.0.10) of one word, for every character.<br>
+ * The positions of every character in the word are precalculated as bitmasks, so that the characteristic vector of
+ * any character and any subword is a shift of a bitmask, without any allocation.<br>
+ * <br>
+ * Instances are immutable, and can be shared between threads.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class CharacteristicVectors {
+    private static final int ASCII = 128;
+
+    private final String word;
+    private final int blocks;
+    /**
+     * The distinct characters of the word, sorted.
+     */
+    private final char[] alphabet;
+    /**
+     * The index in {@link #alphabet} of every ASCII character, or -1 if the word does not contain it.
+     */
+    private final int[] asciiIndex;
+    /**
+     * The positions of every character of {@link #alphabet} in the word, as {@link #blocks} consecutive bitmasks.
+     */
+    private final long[] masks;
+
+    /**
+     * Precalculates the characteristic vectors of a word.
+     *
+     * @param word the word of the simulated Levenshtein automata.
+     * @throws IllegalArgumentException if {@code word} is null.
+     */
+    public CharacteristicVectors(String word) {
+        if (word == null) {
+            throw new IllegalArgumentException("Null word in CharacteristicVectors.");
+        }
+        this.word = word;
+        blocks = Math.max(1, (word.length() + 63) / 64);
+
+        char[] chars = word.toCharArray();
+        Arrays.sort(chars);
+        int distinct = 0;
+        for (int i = 0; i < chars.length; i++) {
+            if (i == 0 || chars[i] != chars[i - 1]) {
+                chars[distinct++] = chars[i];
+            }
+        }
+        alphabet = Arrays.copyOf(chars, distinct);
+        asciiIndex = new int[ASCII];
+        Arrays.fill(asciiIndex, -1);
+        for (int i = 0; i < alphabet.length && alphabet[i] < ASCII; i++) {
+            asciiIndex[alphabet[i]] = i;
+        }
+        masks = new long[alphabet.length * blocks];
+        for (int i = 0; i < word.length(); i++) {
+            masks[indexOf(word.charAt(i)) * blocks + i / 64] |= 1L << (i % 64);
+        }
+    }
+
+    /**
+     * Returns the word of these vectors.
+     *
+     * @return the word of the simulated Levenshtein automata.
+     */
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * Returns the length of the word of these vectors.
+     *
+     * @return the length of the word of the simulated Levenshtein automata.
+     */
+    public int length() {
+        return word.length();
+    }
+
+    /**
+     * Returns the characteristic vector of a character and a subword, as the bits of an {@code int}: bit {@code k}
+     * is set if the character at index {@code offset + k} of the word equals {@code c}.
+     *
+     * @param c      the character.
+     * @param offset the start of the subword.
+     * @param length the length of the subword, at most 31.
+     * @return the characteristic vector of {@code c} and the subword.
+     */
+    public int vector(char c, int offset, int length) {
+        int index = indexOf(c);
+        if (index < 0 || length == 0) {
+            return 0;
+        }
+        int block = offset / 64;
+        int shift = offset % 64;
+        long bits = masks[index * blocks + block] >>> shift;
+        if (shift != 0 && block + 1 < blocks) {
+            bits |= masks[index * blocks + block + 1] << (64 - shift);
+        }
+        return (int) bits & ((1 << length) - 1);
+    }
+
+    /**
+     * Returns the amount of distinct characters in the word.
+     *
+     * @return the size of the alphabet of the word.
+     */
+    int alphabetSize() {
+        return alphabet.length;
+    }
+
+    /**
+     * Returns a character of the alphabet of the word.
+     *
+     * @param index the index of the character, in the order of {@link #indexOf}.
+     * @return the character at {@code index}.
+     */
+    char letter(int index) {
+        return alphabet[index];
+    }
+
+    /**
+     * Finds a character in the alphabet of the word.
+     *
+     * @param c The character to look for.
+     * @return The index of {@code c} in {@link #alphabet}, or a negative value if the word does not contain it.
+     */
+    int indexOf(char c) {
+        return c < ASCII ? asciiIndex[c] : Arrays.binarySearch(alphabet, c);
+    }
+}
@@ -0,0 +1,143 @@
+package api.didyoumean.levenshteinautomata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Levenshtein automaton for one word, materialized as a DFA.<br>
+ * Every state that can be reached in the simulated automaton of a {@link LevenshteinAutomataFactory} is numbered, and
+ * its transitions are stored for every character of the word, plus one for all characters that are not in the word
+ * (those all have the same characteristic vectors). A transition is a single table lookup afterwards, which pays off
+ * when the same word is searched for many times, see {@link AutomatonCache}.<br>
+ * <br>
+ * Instances are immutable, and can be shared between threads.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class CompiledLevenshteinAutomaton implements Automaton {
+    private static final int FAILURE = -1;
+
+    private final String word;
+    private final int maxDistance;
+    private final CharacteristicVectors vectors;
+    /**
+     * The number of character classes: one for every distinct character of the word, and one for all others.
+     */
+    private final int classes;
+    /**
+     * The next state of every state and character class, at {@code state * classes + class}, or {@link #FAILURE}.
+     */
+    private final int[] transitions;
+    /**
+     * The distance of every accepting state, or -1 for states that are not accepting.
+     */
+    private final int[] distances;
+    private final int[] minEdits;
+
+    /**
+     * Materializes the Levenshtein automaton of a word.
+     *
+     * @param laf  the factory for simulating Levenshtein automata.
+     * @param word the word of the automaton.
+     * @throws IllegalArgumentException if {@code laf} or {@code word} is null.
+     */
+    public CompiledLevenshteinAutomaton(LevenshteinAutomataFactory laf, String word) {
+        if (laf == null || word == null) {
+            throw new IllegalArgumentException("Null argument in CompiledLevenshteinAutomaton.");
+        }
+        this.word = word;
+        this.maxDistance = laf.getMaxDistance();
+        this.vectors = new CharacteristicVectors(word);
+        this.classes = vectors.alphabetSize() + 1;
+        char other = 0;
+        while (vectors.indexOf(other) >= 0) {
+            other++;
+        }
+
+        Map<Long, Integer> ids = new HashMap<>();
+        List<Long> states = new ArrayList<>();
+        ids.put(laf.getInitState(), 0);
+        states.add(laf.getInitState());
+        int[] table = new int[classes * 16];
+        for (int id = 0; id < states.size(); id++) {
+            if ((id + 1) * classes > table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            long state = states.get(id);
+            for (int k = 0; k < classes; k++) {
+                long out = laf.step(state, k < classes - 1 ? vectors.letter(k) : other, vectors);
+                if (out == LevenshteinAutomataFactory.FAILURE_STATE) {
+                    table[id * classes + k] = FAILURE;
+                } else {
+                    Integer next = ids.get(out);
+                    if (next == null) {
+                        next = states.size();
+                        ids.put(out, next);
+                        states.add(out);
+                    }
+                    table[id * classes + k] = next;
+                }
+            }
+        }
+        transitions = Arrays.copyOf(table, states.size() * classes);
+        distances = new int[states.size()];
+        minEdits = new int[states.size()];
+        for (int id = 0; id < states.size(); id++) {
+            long state = states.get(id);
+            distances[id] = laf.isAccepting(state, word.length()) ? laf.getDistance(state, word.length()) : -1;
+            minEdits[id] = laf.getMinEdits(state);
+        }
+    }
+
+    /**
+     * Returns the word of this automaton.
+     *
+     * @return the word this automaton was compiled for.
+     */
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * Returns the number of states of this automaton, not counting the failure state.
+     *
+     * @return the number of states.
+     */
+    public int getStateCount() {
+        return distances.length;
+    }
+
+    @Override
+    public long getInitState() {
+        return 0;
+    }
+
+    @Override
+    public long step(long state, char c) {
+        int index = vectors.indexOf(c);
+        return transitions[(int) state * classes + (index < 0 ? classes - 1 : index)];
+    }
+
+    @Override
+    public boolean isAccepting(long state) {
+        return distances[(int) state] >= 0;
+    }
+
+    @Override
+    public int getDistance(long state) {
+        return distances[(int) state];
+    }
+
+    @Override
+    public int getMinEdits(long state) {
+        return minEdits[(int) state];
+    }
+
+    @Override
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+}
@@ -1,8 +1,7 @@
 package api.didyoumean.levenshteinautomata;
 
 
-import api.tree.Element;
-import api.tree.Root;
+import api.tree.Trie;
 import api.utils.Pair;
 
 import java.util.*;
@@ -18,17 +17,21 @@ public class LevenshteinAutomata {
 
     /**
      * Calculates the score for this state-pair.<br>
-     * The current calculation is: query weight / (Lev. distance + 1)
+     * The score of a leaf is: weight / (Lev. distance ^ ldWeight).<br>
+     * The score of any other element is an upper bound of the scores of the leaves below it: the maximal weight in its
+     * subtree divided by the minimal amount of edits any word below the state still needs. Since the bound never
+     * underestimates, a leaf that is removed from a queue ordered by this score can not be beaten by any other leaf.
      *
-     * @param state    the current state-pair
-     * @param w        the length of the input word
-     * @param ldWeight The weight of the LD.
-     * @return the score for this pair
+     * @param tree      the dictionary tree of the element
+     * @param element   the element of the current state-pair
+     * @param state     the primitive state of the current state-pair
+     * @param automaton the automaton of the state
+     * @param ldWeight  The weight of the LD.
+     * @return the score for this pair, which is infinite for an exact match when {@code ldWeight} is positive
      */
-    private static int getScore(Pair<Element, State> state, int w, int ldWeight) {
-        int score = state.getLeft().getWeight();
-        int distance = state.getLeft().isLeaf() ? state.getRight().getDistance(w) : state.getRight().getMinEdits();
-        return (int) (score / (pow(distance, ldWeight)));
+    private static double getScore(Trie tree, int element, long state, Automaton automaton, int ldWeight) {
+        int distance = tree.isLeaf(element) ? automaton.getDistance(state) : automaton.getMinEdits(state);
+        return tree.weight(element) / pow(distance, ldWeight);
     }
 
     /**
@@ -42,7 +45,7 @@ public class LevenshteinAutomata {
      * @param ldWeight The weight of the LD.
      * @return A string similar to {@code word}, or an empty string if no result could be found
      */
-    public static String intersect(Root tree, LevenshteinAutomataFactory laf, String word, int ldWeight) {
+    public static String intersect(Trie tree, LevenshteinAutomataFactory laf, String word, int ldWeight) {
         List<String> result = intersectN(tree, laf, word, 1, ldWeight);
         return result.size() == 0 ? "" : result.get(0);
     }
@@ -59,30 +62,219 @@ public class LevenshteinAutomata {
      * @param ldWeight The weight of the LD.
      * @return {@code n} strings similar to {@code word}, or less if there aren't that many results.
      */
-    public static List<String> intersectN(Root tree, LevenshteinAutomataFactory laf, String word, int n, int ldWeight) {
-        int w = word.length();
-        List<String> result = new ArrayList<>(n);
-        PriorityQueue<Pair<Element, Pair<State, Integer>>> queue = new PriorityQueue<>(
-                (p1, p2) -> p2.getRight().getRight() - p1.getRight().getRight());
-
-        queue.add(new Pair<>(tree, new Pair<>(laf.getInit(), Integer.MAX_VALUE)));
-        Pair<Element, Pair<State, Integer>> state;
-        while ((state = queue.poll()) != null && result.size() < n) {
-            Element e = state.getLeft();
-            State s = state.getRight().getLeft();
-            if (e.isLeaf()) {
-                if (s.isAcceptingState(w)) {
-                    result.add(e.getWord().replace("\0", ""));
-                }
-            } else {
-                for (Element child : e.getChildren()) {
-                    State out = child.isLeaf() ? s : s.outState(child.getLetter(), word);
-                    if (out != null) {
-                        queue.add(new Pair<>(child, new Pair<>(out, getScore(new Pair<>(child, out), w, ldWeight))));
+    public static List<String> intersectN(Trie tree, LevenshteinAutomataFactory laf, String word, int n, int ldWeight) {
+        return toWords(search(tree, new SimulatedAutomaton(laf, word), n, ldWeight, laf.getMaxDistance()));
+    }
+
+    /**
+     * Intersects the dictionary tree with (simulated) Levenhstein automata of increasing radius.<br>
+     * The tree is searched with radius 0, then 1, and so on up to {@code maxDistance}. The search stops as soon as
+     * {@code n} results are found whose scores can not be beaten by any word at a greater distance.
+     *
+     * @param tree        the dictionary tree to search in
+     * @param laf         the factory for simulating Levenshtein automata
+     * @param word        the (possibly corrupted) input word
+     * @param n           the amount of results
+     * @param ldWeight    The weight of the LD.
+     * @param maxDistance the maximal Levenshtein distance of the results.
+     * @return {@code n} strings similar to {@code word}, or less if there aren't that many results.
+     * @throws IllegalArgumentException if {@code maxDistance} is negative, or greater than the maximal distance of
+     *                                  {@code laf}.
+     */
+    public static List<String> intersectN(Trie tree, LevenshteinAutomataFactory laf, String word, int n, int ldWeight,
+                                          int maxDistance) {
+        return deepen(tree, new SimulatedAutomaton(laf, word), n, ldWeight, maxDistance);
+    }
+
+    /**
+     * Intersects the dictionary tree with a compiled Levenhstein automaton.
+     * Returns the top {@code n} strings sorted by {@link #getScore score} that satisfy the maximal distance of
+     * {@code automaton}.
+     *
+     * @param tree      the dictionary tree to search in
+     * @param automaton the compiled automaton of the (possibly corrupted) input word
+     * @param n         the amount of results
+     * @param ldWeight  The weight of the LD.
+     * @return {@code n} strings similar to the word of {@code automaton}, or less if there aren't that many results.
+     */
+    public static List<String> intersectN(Trie tree, CompiledLevenshteinAutomaton automaton, int n, int ldWeight) {
+        return toWords(search(tree, automaton, n, ldWeight, automaton.getMaxDistance()));
+    }
+
+    /**
+     * Intersects the dictionary tree with a compiled Levenhstein automaton, with increasing radius.
+     *
+     * @param tree        the dictionary tree to search in
+     * @param automaton   the compiled automaton of the (possibly corrupted) input word
+     * @param n           the amount of results
+     * @param ldWeight    The weight of the LD.
+     * @param maxDistance the maximal Levenshtein distance of the results.
+     * @return {@code n} strings similar to the word of {@code automaton}, or less if there aren't that many results.
+     * @throws IllegalArgumentException if {@code maxDistance} is negative, or greater than the maximal distance of
+     *                                  {@code automaton}.
+     * @see #intersectN(Trie, LevenshteinAutomataFactory, String, int, int, int)
+     */
+    public static List<String> intersectN(Trie tree, CompiledLevenshteinAutomaton automaton, int n, int ldWeight,
+                                          int maxDistance) {
+        return deepen(tree, automaton, n, ldWeight, maxDistance);
+    }
+
+    /**
+     * Intersects the dictionary tree with the (simulated) Levenhstein automata of several words in one traversal.
+     * Returns the top {@code n} strings of every word, sorted by {@link #getScore score}, that satisfy the maximal
+     * distance of {@code laf}.
+     *
+     * @param tree     the dictionary tree to search in
+     * @param laf      the factory for simulating Levenshtein automata
+     * @param words    the (possibly corrupted) input words
+     * @param n        the amount of results of every word
+     * @param ldWeight The weight of the LD.
+     * @return for every word, in the same order as {@code words}, {@code n} strings similar to it, or less if there
+     * aren't that many results.
+     * @throws IllegalArgumentException if {@code words} is or contains {@code null}.
+     */
+    public static List<List<String>> intersectBatch(Trie tree, LevenshteinAutomataFactory laf, List<String> words,
+                                                    int n, int ldWeight) {
+        if (words == null) {
+            throw new IllegalArgumentException("Null words in LevenshteinAutomata.intersectBatch.");
+        }
+        int[] maxDistances = new int[words.size()];
+        Arrays.fill(maxDistances, laf.getMaxDistance());
+        return intersectBatch(tree, laf, words, n, ldWeight, maxDistances);
+    }
+
+    /**
+     * Intersects the dictionary tree with the (simulated) Levenhstein automata of several words in one traversal,
+     * with a maximal distance for every word.<br>
+     * The tree is walked once for the whole batch, advancing the states of all words at every element, so the upper
+     * part of the tree is only traversed once instead of once per word.
+     *
+     * @param tree         the dictionary tree to search in
+     * @param laf          the factory for simulating Levenshtein automata
+     * @param words        the (possibly corrupted) input words
+     * @param n            the amount of results of every word
+     * @param ldWeight     The weight of the LD.
+     * @param maxDistances the maximal Levenshtein distance of the results of every word, in the same order as
+     *                     {@code words}.
+     * @return for every word, in the same order as {@code words}, {@code n} strings similar to it, or less if there
+     * aren't that many results.
+     * @throws IllegalArgumentException if {@code words} is or contains {@code null}, if the lengths of {@code words}
+     *                                  and {@code maxDistances} differ, or if a maximal distance is negative or greater
+     *                                  than the maximal distance of {@code laf}.
+     */
+    public static List<List<String>> intersectBatch(Trie tree, LevenshteinAutomataFactory laf, List<String> words,
+                                                    int n, int ldWeight, int[] maxDistances) {
+        if (words == null || maxDistances == null || words.size() != maxDistances.length) {
+            throw new IllegalArgumentException("Invalid arguments in LevenshteinAutomata.intersectBatch.");
+        }
+        Automaton[] automata = new Automaton[words.size()];
+        for (int i = 0; i < automata.length; i++) {
+            if (maxDistances[i] < 0 || maxDistances[i] > laf.getMaxDistance()) {
+                throw new IllegalArgumentException("Invalid maxDistance in LevenshteinAutomata.intersectBatch.");
+            }
+            automata[i] = new SimulatedAutomaton(laf, words.get(i));
+        }
+        return new BatchSearch(tree, automata, maxDistances.clone(), n, ldWeight).search();
+    }
+
+    /**
+     * Searches the dictionary tree with radius 0, then 1, and so on up to {@code maxDistance}, until {@code n}
+     * results are found whose scores can not be beaten by any word at a greater distance.
+     *
+     * @param tree        the dictionary tree to search in
+     * @param automaton   the automaton of the (possibly corrupted) input word
+     * @param n           the amount of results
+     * @param ldWeight    The weight of the LD.
+     * @param maxDistance the maximal Levenshtein distance of the results.
+     * @return {@code n} strings similar to the word of {@code automaton}, or less if there aren't that many results.
+     * @throws IllegalArgumentException if {@code maxDistance} is negative, or greater than the maximal distance of
+     *                                  {@code automaton}.
+     */
+    private static List<String> deepen(Trie tree, Automaton automaton, int n, int ldWeight, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > automaton.getMaxDistance()) {
+            throw new IllegalArgumentException("Invalid maxDistance in LevenshteinAutomata.intersectN.");
+        }
+        List<Pair<String, Double>> result = new ArrayList<>();
+        for (int radius = 0; radius <= maxDistance; radius++) {
+            result = search(tree, automaton, n, ldWeight, radius);
+            double bound = tree.weight(tree.root()) / pow(radius + 1, ldWeight);
+            if (result.size() == n && result.stream().allMatch(r -> r.getRight() >= bound)) {
+                break;
+            }
+        }
+        return toWords(result);
+    }
+
+    /**
+     * Intersects the dictionary tree with a Levenhstein automaton with a given radius.
+     *
+     * @param tree      the dictionary tree to search in
+     * @param automaton the automaton of the (possibly corrupted) input word
+     * @param n         the amount of results
+     * @param ldWeight  The weight of the LD.
+     * @param radius    the maximal Levenshtein distance of the results, at most the maximal distance of
+     *                  {@code automaton}.
+     * @return at most {@code n} strings similar to the word, along with their {@link #getScore score}.
+     */
+    private static List<Pair<String, Double>> search(Trie tree, Automaton automaton, int n, int ldWeight,
+                                                     int radius) {
+        List<Pair<String, Double>> result = new ArrayList<>(n);
+        StateQueue queue = new StateQueue();
+
+        queue.add(tree.root(), automaton.getInitState(), Double.POSITIVE_INFINITY, tree.weight(tree.root()));
+        while (!queue.isEmpty() && result.size() < n) {
+            int e = queue.node();
+            long s = queue.state();
+            double score = queue.score();
+            queue.remove();
+            if (tree.isLeaf(e)) {
+                // only accepted leaves are queued, and no queued pair can score higher
+                result.add(new Pair<>(tree.word(e), score));
+                continue;
+            }
+            for (int child = tree.firstChild(e); child != Trie.NONE; child = tree.nextSibling(child)) {
+                if (tree.isLeaf(child)) {
+                    if (automaton.isAccepting(s) && automaton.getDistance(s) <= radius) {
+                        queue.add(child, s, getScore(tree, child, s, automaton, ldWeight), tree.weight(child));
                     }
+                    continue;
+                }
+                long out = step(tree, child, automaton, s);
+                // every word below a state needs at least its minimal amount of edits
+                if (out != LevenshteinAutomataFactory.FAILURE_STATE && automaton.getMinEdits(out) <= radius) {
+                    queue.add(child, out, getScore(tree, child, out, automaton, ldWeight), tree.weight(child));
                 }
             }
         }
         return result;
     }
+
+    /**
+     * Steps an automaton through all letters of the label of the edge to a node.
+     *
+     * @param tree      the dictionary tree of the node
+     * @param node      the node
+     * @param automaton the automaton
+     * @param state     the state of the automaton at the parent of {@code node}
+     * @return the state at {@code node}, or {@link LevenshteinAutomataFactory#FAILURE_STATE} if the automaton fails.
+     */
+    static long step(Trie tree, int node, Automaton automaton, long state) {
+        int length = tree.labelLength(node);
+        for (int i = 0; i < length && state != LevenshteinAutomataFactory.FAILURE_STATE; i++) {
+            state = automaton.step(state, tree.labelAt(node, i));
+        }
+        return state;
+    }
+
+    /**
+     * Drops the scores of a list of results.
+     *
+     * @param results the results along with their scores.
+     * @return the words of {@code results}, in the same order.
+     */
+    private static List<String> toWords(List<Pair<String, Double>> results) {
+        List<String> words = new ArrayList<>(results.size());
+        results.forEach(r -> words.add(r.getLeft()));
+        return words;
+    }
 }
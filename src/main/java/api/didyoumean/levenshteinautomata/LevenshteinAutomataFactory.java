@@ -1,9 +1,24 @@
 package api.didyoumean.levenshteinautomata;
 
-import api.utils.Pair;
-
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 import static java.util.Collections.max;
 import static java.util.Collections.min;
@@ -15,6 +30,16 @@ import static java.util.Collections.min;
  * of a word W in linear time in |W|.<br>
  * <br>
  * After providing the {@link #getInit() initial state}, successive states can be determine in constant time.<br>
+ * The reachable parametric states are numbered densely, and the transition table for every length {@code l} of the
+ * relevant subword is a flat {@code int[]} indexed by {@code stateId * 2^l + vector}, so that every step of a
+ * simulated automaton is a single array lookup.<br>
+ * As the precalculation is slow for greater distances, the tables for distances up to {@link #MAX_SHIPPED_DISTANCE}
+ * are precalculated when the project is built (see {@link #main(String[])}), and shipped as resources next to this
+ * class. Other tables can be stored in a file in the {@link #CACHE_DIR_PROPERTY cache directory} the first time they
+ * are calculated, and are then mapped from that file by every factory that is created afterwards.<br>
+ * <br>
+ * Factories can optionally also count the transposition of two adjacent characters as a single edit (the restricted
+ * Damerau-Levenshtein distance), using the transposition positions (t-positions) of section 7 of the paper.<br>
  * <br>
  * The approach used in this class is based on:<br>
  * <i>Fast string correction with Levenshtein automata (KU Schulz {@literal &} S Mihov, 2002)</i><br>
@@ -24,36 +49,239 @@ import static java.util.Collections.min;
  * @see <a href="http://goo.gl/v28nA8">Fast string correction with Levenshtein automata</a>
  */
 public class LevenshteinAutomataFactory {
+    /**
+     * The system property with the directory in which the precalculated tables are stored. If it is not set, the
+     * tables are not stored and every factory precalculates them. The directory should only be writable by the user
+     * that runs the application.
+     */
+    public static final String CACHE_DIR_PROPERTY = "didyoumean.cache.dir";
+    /**
+     * The primitive state that stands for a failure state.
+     */
+    public static final long FAILURE_STATE = -1L;
+    /**
+     * The greatest distance whose tables are shipped as resources, which is the greatest distance that
+     * {@link api.didyoumean.DidYouMean} and {@link api.autocomplete.AutoCompleter} use.
+     */
+    public static final int MAX_SHIPPED_DISTANCE = 3;
+    private static final int MAGIC = 0x4c415446;
+    private static final int VERSION = 3;
+    /**
+     * The amount of values in the header of a file with tables.
+     */
+    private static final int HEADER_SIZE = 6;
+    /**
+     * The shared factories, by {@link #key(int, boolean) maximal distance and variant}.
+     */
+    private static final ConcurrentMap<Integer, LevenshteinAutomataFactory> INSTANCES = new ConcurrentHashMap<>();
+    /**
+     * The entry of a transition table for a failure state.
+     */
+    private static final int FAILURE = -1;
+    /**
+     * The amount of bits of a transition table entry that hold the offset of the next state.
+     */
+    private static final int OFFSET_BITS = 8;
+    private static final int OFFSET_MASK = (1 << OFFSET_BITS) - 1;
+    /**
+     * The maximal amount of states whose numbers fit in a transition table entry.
+     */
+    private static final int MAX_STATES = 1 << (Integer.SIZE - 1 - OFFSET_BITS);
+
     /**
      * Maximal allowed Levenshtein distance
      */
     private final int maxN;
     /**
-     * Parametric list of states
+     * Whether the transposition of two adjacent characters counts as a single edit.
+     */
+    private final boolean transpositions;
+    /**
+     * The transition tables for every length {@code l} of the relevant subword. The entry for state {@code s} and
+     * characteristic vector {@code v} is {@code transitionTables[l][s << l | v]}, which holds the next state and the
+     * increase of the offset as {@code next << OFFSET_BITS | offset}, or {@link #FAILURE}.
      */
-    private Set<ParametricState> pStates;
+    private int[][] transitionTables;
     /**
-     * Parametric list of final states
+     * The maximal base offset (see 4.0.18) of every state.
      */
-    private Map<ParametricState, Pair<Integer, Integer>> acceptingIntervals;
+    private int[] maxBase;
     /**
-     * Transition tables containing parametric description of the transition function.
+     * The minimal amount of edits of every state.
      */
-    private Map<Integer, TransitionTable> transitionTables;
-    private ParametricState initState;
-    private boolean reduced = false;
+    private int[] minEdits;
+    /**
+     * The interval (relative to the word length) in which the index of every state is accepting.
+     */
+    private int[] acceptingFrom;
+    private int[] acceptingTo;
 
     /**
      * Initializes a new {@link LevenshteinAutomataFactory} using a given maximal distance.<br>
-     * Upon initialisation the precalculations are done which, depending on {@code n}, take a lot of time.<br>
+     * Upon initialisation the tables are loaded from the resources that were generated when the project was built, or
+     * else from the {@link #CACHE_DIR_PROPERTY cache directory}, if it is set. If they are not stored there yet, the
+     * precalculations are done which, depending on {@code n}, take a lot of time, and the result is stored.<br>
      * Note that memory usage grows extremely fast when increasing {@code n}. It is not recommended to use values
      * greater than 4.
      *
      * @param n The maximal distance that the simulated automata accept.
      */
     public LevenshteinAutomataFactory(int n) {
+        this(n, false);
+    }
+
+    /**
+     * Initializes a new {@link LevenshteinAutomataFactory} using a given maximal distance, that optionally counts
+     * transpositions as a single edit.
+     *
+     * @param n              The maximal distance that the simulated automata accept.
+     * @param transpositions Whether the transposition of two adjacent characters counts as a single edit.
+     * @see #LevenshteinAutomataFactory(int)
+     */
+    public LevenshteinAutomataFactory(int n, boolean transpositions) {
+        this(n, transpositions, true, cacheDir());
+    }
+
+    /**
+     * Initializes a new {@link LevenshteinAutomataFactory} using a given maximal distance and cache directory, without
+     * looking at the shipped resources.
+     *
+     * @param n              The maximal distance that the simulated automata accept.
+     * @param transpositions Whether the transposition of two adjacent characters counts as a single edit.
+     * @param cacheDir       The directory in which the precalculated tables are stored, or {@code null} to always
+     *                       precalculate them.
+     */
+    LevenshteinAutomataFactory(int n, boolean transpositions, Path cacheDir) {
+        this(n, transpositions, false, cacheDir);
+    }
+
+    /**
+     * Initializes a new {@link LevenshteinAutomataFactory} using a given maximal distance and cache directory.
+     *
+     * @param n              The maximal distance that the simulated automata accept.
+     * @param transpositions Whether the transposition of two adjacent characters counts as a single edit.
+     * @param resources      Whether the tables are loaded from the shipped resources, if they are there.
+     * @param cacheDir       The directory in which the precalculated tables are stored, or {@code null} to always
+     *                       precalculate them.
+     */
+    private LevenshteinAutomataFactory(int n, boolean transpositions, boolean resources, Path cacheDir) {
         maxN = n;
-        precalculate();
+        this.transpositions = transpositions;
+        String name = fileName(n, transpositions);
+        if (resources && loadResource(name)) {
+            return;
+        }
+        Path file = cacheDir == null ? null : cacheDir.resolve(name);
+        if (file == null || !load(file)) {
+            precalculate();
+            if (file != null) {
+                save(file);
+            }
+        }
+    }
+
+    /**
+     * Precalculates the tables for every distance from 1 to {@link #MAX_SHIPPED_DISTANCE}, with and without
+     * transpositions, and stores them in a directory. The build runs this on the directory of this class in the build
+     * output, so that the tables are shipped as resources.
+     *
+     * @param args The directory in which the tables are stored.
+     * @throws IllegalArgumentException if not exactly one argument is given.
+     * @throws IOException              if the tables could not be stored.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: LevenshteinAutomataFactory <output directory>");
+        }
+        Path dir = Paths.get(args[0]);
+        for (int n = 1; n <= MAX_SHIPPED_DISTANCE; n++) {
+            for (boolean transpositions : new boolean[]{false, true}) {
+                Path file = dir.resolve(fileName(n, transpositions));
+                if (!new LevenshteinAutomataFactory(n, transpositions, null).save(file)) {
+                    throw new IOException("Could not store the tables in " + file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the file with the tables of a factory.
+     *
+     * @param n              The maximal distance of the factory.
+     * @param transpositions Whether the factory counts transpositions as a single edit.
+     * @return The file name, which is also the name of the resource.
+     */
+    private static String fileName(int n, boolean transpositions) {
+        return (transpositions ? "damerau-levenshtein-" : "levenshtein-") + n + ".tables";
+    }
+
+    /**
+     * Returns the directory in which the precalculated tables are stored.
+     *
+     * @return the value of {@link #CACHE_DIR_PROPERTY}, or {@code null} if it is not set.
+     */
+    private static Path cacheDir() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        return dir == null ? null : Paths.get(dir);
+    }
+
+    /**
+     * Returns the shared factory for a given maximal distance. The factory is created on the first call for
+     * {@code n}, after which every call returns the same instance. As factories are immutable, they can be shared by
+     * any amount of threads.
+     *
+     * @param n The maximal distance that the simulated automata accept.
+     * @return The factory for {@code n}.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    public static LevenshteinAutomataFactory getInstance(int n) {
+        return getInstance(n, false);
+    }
+
+    /**
+     * Returns the shared factory for a given maximal distance and variant.
+     *
+     * @param n              The maximal distance that the simulated automata accept.
+     * @param transpositions Whether the transposition of two adjacent characters counts as a single edit.
+     * @return The factory for {@code n} and {@code transpositions}.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     * @see #getInstance(int)
+     */
+    public static LevenshteinAutomataFactory getInstance(int n, boolean transpositions) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative distance in LevenshteinAutomataFactory.getInstance.");
+        }
+        return INSTANCES.computeIfAbsent(key(n, transpositions),
+                k -> new LevenshteinAutomataFactory(n, transpositions));
+    }
+
+    /**
+     * Returns the key of a shared factory.
+     *
+     * @param n              The maximal distance of the factory.
+     * @param transpositions Whether the factory counts transpositions as a single edit.
+     * @return A key that is unique for every combination of {@code n} and {@code transpositions}.
+     */
+    private static int key(int n, boolean transpositions) {
+        return n * 2 + (transpositions ? 1 : 0);
+    }
+
+    /**
+     * Returns the maximal distance that the simulated automata accept.
+     *
+     * @return the maximal Levenshtein distance of this factory.
+     */
+    public int getMaxDistance() {
+        return maxN;
+    }
+
+    /**
+     * Indicates whether the simulated automata count the transposition of two adjacent characters as a single edit.
+     *
+     * @return {@code true} if transpositions count as a single edit; otherwise {@code false}.
+     */
+    public boolean hasTranspositions() {
+        return transpositions;
     }
 
     /**
@@ -62,109 +290,394 @@ public class LevenshteinAutomataFactory {
      * @return the initial state of any Levenshtein automata for the given max distance.
      */
     public State getInit() {
-        return new StateWrapper(new Pair<>(initState, 0));
+        return new StateWrapper(getInitState());
     }
 
     /**
-     * Perform precalculations as described in 5.2 with an additional reduction stage to clear redundant data.
+     * Returns the universal initial state of any word with any length, as a primitive state.<br>
+     * A primitive state encodes the number of the parametric state in its upper 32 bits and the index defining the
+     * state in its lower 32 bits, so that automata can be simulated without allocating any objects.
+     *
+     * @return the initial state of any Levenshtein automata for the given max distance.
      */
-    private void precalculate() {
-        calculateParametricStates();
-        calculateFinalStates();
-        calculateTransitionTables();
-        reduceStates();//skip line this to make debugging easier
+    public long getInitState() {
+        return state(0, 0);
     }
 
     /**
-     * Reduces the information that is stored in {@link ParametricState}.<br>
-     * Specifically, {@link ParametricState#positions positions} is cleared as it is redundant after the transition tables
-     * are computed.
-     * Before clearing, information that is needed afterwards is calculated and stored(hashCode, maxBaseIndex)<br>
-     * To keep {@link Object#equals(Object) equals()} correct, each {@link ParametricState} is given a {@link Object}
-     * which will serve as its identity.
+     * Returns the next primitive state for a given symbol.
+     *
+     * @param state   the current state, not {@link #FAILURE_STATE}
+     * @param c       the next symbol
+     * @param vectors the characteristic vectors of the word
+     * @return the next state, or {@link #FAILURE_STATE} if this transition results in a failure state.
      */
-    private void reduceStates() {
-        Map<ParametricState, Object> stateReductions = new HashMap<>();
-        Integer i = 0;
-        for (ParametricState pState : pStates) {
-            Integer o = i++;
-            stateReductions.put(pState, o);
-            pState.o = o;
-            pState.hash = pState.hashCode();
-            pState.maxBase = pState.maxBaseOffset();
-            pState.minEdits = pState.getMinEdits();
+    public long step(long state, char c, CharacteristicVectors vectors) {
+        int offset = offset(state);
+        int l = Math.min(vectors.length() - offset, 2 * maxN + 1);
+        return step(state, l, vectors.vector(c, offset, l));
+    }
+
+    /**
+     * Looks up the next primitive state in the transition tables.
+     *
+     * @param state  the current state
+     * @param l      the length of the relevant subword
+     * @param vector the characteristic vector of the next symbol and the relevant subword
+     * @return the next state, or {@link #FAILURE_STATE} if this transition results in a failure state.
+     */
+    private long step(long state, int l, int vector) {
+        int next = transitionTables[l][stateId(state) << l | vector];
+        if (next == FAILURE) {
+            return FAILURE_STATE;
         }
+        return state(next >>> OFFSET_BITS, offset(state) + (next & OFFSET_MASK));
+    }
 
-        transitionTables.values().forEach(t -> t.reduce(stateReductions));
-        initState.o = stateReductions.get(initState);
-        initState.hash = initState.hashCode();
-        initState.positions.clear();
-        initState.maxBase = initState.maxBaseOffset();
-        initState.minEdits = initState.getMinEdits();
-        pStates.forEach(p -> p.positions.clear());
-        pStates.clear();
-        reduced = true;
+    /**
+     * Indicates whether a primitive state is accepting.
+     *
+     * @param state the state
+     * @param w     the length of the word of the DFA
+     * @return {@code true} if accepting, otherwise {@code} false
+     */
+    public boolean isAccepting(long state, int w) {
+        int id = stateId(state);
+        int offset = offset(state);
+        return acceptingFrom[id] + w <= offset && offset <= acceptingTo[id] + w;
     }
 
     /**
-     * Calculate the transition tables for every possible length of relevant subwords(see 4.0.33)
+     * Gets the Levenshtein distance corresponding to an accepting primitive state and a given word length.
+     *
+     * @param state the state
+     * @param w     the length of the word of the DFA
+     * @return The calculated Levenshtein distance.
      */
-    private void calculateTransitionTables() {
-        transitionTables = new HashMap<>();
-        for (int l = 0; l <= maxN * 2 + 1; l++) {
-            transitionTables.put(l, new TransitionTable(l));
+    public int getDistance(long state, int w) {
+        return w - offset(state) - maxBase[stateId(state)];
+    }
+
+    /**
+     * Returns the minimal Levenshtein distance possible, starting from a primitive state.
+     *
+     * @param state the state
+     * @return the lowest Levenshtein distance possible.
+     */
+    public int getMinEdits(long state) {
+        return minEdits[stateId(state)];
+    }
+
+    /**
+     * Encodes a primitive state.
+     *
+     * @param id     the number of the parametric state
+     * @param offset the index defining the state
+     * @return the primitive state
+     */
+    private static long state(int id, int offset) {
+        return (long) id << 32 | offset;
+    }
+
+    /**
+     * Returns the number of the parametric state of a primitive state.
+     *
+     * @param state the primitive state
+     * @return the number of the parametric state
+     */
+    private static int stateId(long state) {
+        return (int) (state >>> 32);
+    }
+
+    /**
+     * Returns the index defining a primitive state.
+     *
+     * @param state the primitive state
+     * @return the index defining the state
+     */
+    private static int offset(long state) {
+        return (int) state;
+    }
+
+    /**
+     * Perform precalculations as described in 5.2.<br>
+     * Starting from the initial state, every parametric state that can be reached is numbered in order of discovery,
+     * and its transitions are added to the transition tables. Afterwards only the numbers are needed, so the
+     * parametric states themselves are dropped.
+     */
+    private void precalculate() {
+        ParametricState initState = new ParametricState();
+        initState.positions.add(new ParametricPosition(0, 0, false));
+        List<ParametricState> states = new ArrayList<>();
+        Map<ParametricState, Integer> ids = new HashMap<>();
+        states.add(initState);
+        ids.put(initState, 0);
+
+        transitionTables = new int[maxN * 2 + 2][];
+        for (int l = 0; l < transitionTables.length; l++) {
+            transitionTables[l] = new int[1 << l];
         }
+        for (int id = 0; id < states.size(); id++) {
+            ParametricState p = states.get(id);
+            for (int l = 0; l < transitionTables.length; l++) {
+                int row = id << l;
+                if (row + (1 << l) > transitionTables[l].length) {
+                    transitionTables[l] = Arrays.copyOf(transitionTables[l], transitionTables[l].length * 2);
+                }
+                Arrays.fill(transitionTables[l], row, row + (1 << l), FAILURE);
+                if (p.maxOffset() > l) {
+                    continue;
+                }
+                for (int v = 0; v < 1 << l; v++) {
+                    ParametricState out = p.applyVector(new CharacteristicVector(v, l), -l);
+                    if (out.isEmpty()) {
+                        continue;
+                    }
+                    int offset = out.minOffset();
+                    out = out.shiftToLeft();
+                    Integer next = ids.get(out);
+                    if (next == null) {
+                        next = states.size();
+                        states.add(out);
+                        ids.put(out, next);
+                    }
+                    transitionTables[l][row + v] = next << OFFSET_BITS | offset;
+                }
+            }
+        }
+        for (int l = 0; l < transitionTables.length; l++) {
+            transitionTables[l] = Arrays.copyOf(transitionTables[l], states.size() << l);
+        }
+        calculateStateProperties(states);
     }
 
     /**
-     * Precalculates the interval(relative to the word length) in which the index of a state is accepting.
+     * Precalculates the properties of every state that are needed to simulate an automaton.
+     *
+     * @param states the parametric states, indexed by their number.
      */
-    private void calculateFinalStates() {
-        if (pStates == null) {
-            return;
+    private void calculateStateProperties(List<ParametricState> states) {
+        int size = states.size();
+        maxBase = new int[size];
+        minEdits = new int[size];
+        acceptingFrom = new int[size];
+        acceptingTo = new int[size];
+        for (int id = 0; id < size; id++) {
+            ParametricState p = states.get(id);
+            maxBase[id] = p.maxBaseOffset();
+            minEdits[id] = p.getMinEdits();
+            if (p.hasStandardPositions()) {
+                acceptingFrom[id] = -maxBase[id] - maxN;
+                acceptingTo[id] = -p.maxOffset();
+            } else {
+                // t-positions are never accepting
+                acceptingFrom[id] = 1;
+                acceptingTo[id] = 0;
+            }
         }
-        acceptingIntervals = new HashMap<>();
-        pStates.stream().filter(p -> !p.positions.isEmpty()).forEach(p -> acceptingIntervals.put(p, p.acceptingInterval()));
     }
 
     /**
-     * Calculates all possible parametric states with accordance to definition 4.0.18.
+     * Loads the precalculated tables from a resource next to this class.
+     *
+     * @param name the name of the resource.
+     * @return {@code true} if the tables were loaded; {@code false} if the resource does not exist or is not valid.
      */
-    private void calculateParametricStates() {
-        ParametricPosition init = new ParametricPosition(0, 0);
-        initState = new ParametricState();
-        initState.positions.add(init);
-        List<ParametricPosition> triangle = init.subsumptionTriangle();
-        pStates = calculateParametricStates(new ParametricState(), triangle);
+    private boolean loadResource(String name) {
+        try (InputStream in = LevenshteinAutomataFactory.class.getResourceAsStream(name)) {
+            if (in == null) {
+                return false;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            return load(ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            return false;
+        }
     }
 
+    /**
+     * Loads the precalculated tables from a file, which is mapped into memory instead of read onto the heap.
+     *
+     * @param file the file to load the tables from.
+     * @return {@code true} if the tables were loaded; {@code false} if the file does not exist or is not valid.
+     */
+    private boolean load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.size() <= Integer.MAX_VALUE
+                    && load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
 
     /**
-     * Recursively calcualtes the set of possible parametric states.
+     * Loads the precalculated tables from the contents of a file or resource.<br>
+     * The contents consist of a header (magic number, version, maximal distance, variant, amount of states and a
+     * CRC-32 checksum of the rest of the file), the transition tables in order of the length of the relevant subword,
+     * and the properties of the states. The tables are only used if the checksum matches and every entry is in range,
+     * so a damaged file can not make a simulated automaton step outside of the tables.
      *
-     * @param state the base state to add in more positions
-     * @param ps    the remaining positions to add
-     * @return a {@link Set} of possible parametric states
+     * @param bytes the contents of the file.
+     * @return {@code true} if the tables were loaded; {@code false} if the contents are not valid.
      */
-    private Set<ParametricState> calculateParametricStates(ParametricState state, List<ParametricPosition> ps) {
-        if (ps.isEmpty()) {
-            Set<ParametricState> result = new HashSet<>();
-            result.add(state.shiftToLeft());
-            return result;
+    private boolean load(ByteBuffer bytes) {
+        try {
+            IntBuffer in = bytes.asIntBuffer();
+            if (in.remaining() < HEADER_SIZE || in.get() != MAGIC || in.get() != VERSION || in.get() != maxN
+                    || in.get() != (transpositions ? 1 : 0)) {
+                return false;
+            }
+            int states = in.get();
+            int checksum = in.get();
+            if (states <= 0 || states > MAX_STATES || in.remaining() != size(states)) {
+                return false;
+            }
+            bytes.position(HEADER_SIZE * Integer.BYTES);
+            if (checksum(bytes) != checksum) {
+                return false;
+            }
+            int[][] tables = new int[maxN * 2 + 2][];
+            for (int l = 0; l < tables.length; l++) {
+                tables[l] = read(in, states << l);
+            }
+            int[] base = read(in, states);
+            int[] edits = read(in, states);
+            int[] from = read(in, states);
+            int[] to = read(in, states);
+            if (!isValid(tables, states) || !inRange(base, -maxN, maxN) || !inRange(edits, 0, maxN)
+                    || !inRange(from, -2 * maxN, 1) || !inRange(to, -2 * maxN, 0)) {
+                return false;
+            }
+            transitionTables = tables;
+            maxBase = base;
+            minEdits = edits;
+            acceptingFrom = from;
+            acceptingTo = to;
+            return true;
+        } catch (BufferUnderflowException e) {
+            return false;
         }
-        List<ParametricPosition> ps2 = new ArrayList<>(ps);
-        ParametricPosition p = ps2.iterator().next();
-        ps2.remove(p);
-        Set<ParametricState> result = calculateParametricStates(state, ps2);
-        if (!state.subsumes(p)) {
-            ParametricState state2 = state.copy();
-            state2.addPosition(p);
-            Set<ParametricState> result2 = calculateParametricStates(state2, ps2);
-            result.addAll(result2);
+    }
+
+    /**
+     * Returns the amount of values in a file after the header.
+     *
+     * @param states the amount of states.
+     * @return the total length of the transition tables and the properties of {@code states} states.
+     */
+    private long size(int states) {
+        long result = 4L * states;
+        for (int l = 0; l <= maxN * 2 + 1; l++) {
+            result += (long) states << l;
         }
         return result;
     }
 
+    /**
+     * Reads a part of a file into an array.
+     *
+     * @param in     the contents of the file.
+     * @param length the amount of values to read.
+     * @return the values that were read.
+     */
+    private static int[] read(IntBuffer in, int length) {
+        int[] result = new int[length];
+        in.get(result);
+        return result;
+    }
+
+    /**
+     * Indicates whether every entry of loaded transition tables is a failure or a transition to an existing state,
+     * with an increase of the offset of at most the length of the relevant subword.
+     *
+     * @param tables the transition tables.
+     * @param states the amount of states.
+     * @return {@code true} if all entries are valid; otherwise {@code false}.
+     */
+    private static boolean isValid(int[][] tables, int states) {
+        for (int l = 0; l < tables.length; l++) {
+            for (int entry : tables[l]) {
+                if (entry != FAILURE && (entry < 0 || entry >>> OFFSET_BITS >= states || (entry & OFFSET_MASK) > l)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether all values of a loaded state property are within bounds.
+     *
+     * @param values the values of the property.
+     * @param min    the lowest valid value.
+     * @param max    the highest valid value.
+     * @return {@code true} if all values are in {@code [min, max]}; otherwise {@code false}.
+     */
+    private static boolean inRange(int[] values, int min, int max) {
+        return Arrays.stream(values).allMatch(value -> min <= value && value <= max);
+    }
+
+    /**
+     * Calculates the CRC-32 checksum of the remaining bytes of a buffer, without consuming them.
+     *
+     * @param bytes the buffer.
+     * @return the checksum of the bytes from the position to the limit of {@code bytes}.
+     */
+    private static int checksum(ByteBuffer bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Stores the precalculated tables in a file, in the format that is read by {@link #load(Path)}.<br>
+     * The tables are written to a temporary file first, which is then moved to {@code file}, so that other processes
+     * never see an incomplete file. If the tables can not be stored, they are simply calculated again next time.
+     *
+     * @param file the file to store the tables in.
+     * @return {@code true} if the tables were stored; otherwise {@code false}.
+     */
+    private boolean save(Path file) {
+        int states = maxBase.length;
+        ByteBuffer body = ByteBuffer.allocate(Math.toIntExact(size(states) * Integer.BYTES));
+        IntBuffer values = body.asIntBuffer();
+        for (int[] table : transitionTables) {
+            values.put(table);
+        }
+        values.put(maxBase).put(minEdits).put(acceptingFrom).put(acceptingTo);
+        Path temp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(maxN);
+                out.writeInt(transpositions ? 1 : 0);
+                out.writeInt(states);
+                out.writeInt(checksum(body));
+                out.write(body.array());
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // the temporary file is left behind, which does no harm
+            }
+            return false;
+        }
+    }
 
     /**
      * A helper function to create a set of positions in a convenient way.<br>
@@ -180,45 +693,25 @@ public class LevenshteinAutomataFactory {
             if (ie.length != 2) {
                 throw new IllegalArgumentException("data must contain elements of arrays of at least size 2");
             }
-            result.add(new ParametricPosition(ie[0], ie[1]));
+            result.add(new ParametricPosition(ie[0], ie[1], false));
         }
         return result;
     }
 
-
     /**
-     * Returns all possible characteristic vectors with length {@code l}.<br>
-     * Note that this results in {@code 2^l} results.
-     *
-     * @param l The length of the vectors
-     * @return All possible vectors with length {@code l}.
-     */
-    private Set<CharacteristicVector> vectorCombinations(int l) {
-        Set<CharacteristicVector> result = new HashSet<>(1 << l);
-        int i = -1;
-        while (++i < (1 << l)) {
-            Boolean[] bits = new Boolean[l];
-            for (int b = 0; b < l; b++) {
-                bits[b] = (i & (1 << b)) != 0;
-            }
-            result.add(new CharacteristicVector(bits));
-        }
-        return result;
-    }
-
-    /**
-     * A class corresponding to a state in a deterministic Levenshtein automata.
+     * A class corresponding to a state in a deterministic Levenshtein automata, as an object around a
+     * {@link #getInitState() primitive state}.
      */
     private class StateWrapper extends State {
-        Pair<ParametricState, Integer> state;
+        final long state;
 
         /**
          * Initializes a new state.
          *
-         * @param s the parametric state, along with an index defining this state.
+         * @param state the primitive state.
          */
-        StateWrapper(Pair<ParametricState, Integer> s) {
-            state = s;
+        StateWrapper(long state) {
+            this.state = state;
         }
 
         /**
@@ -229,12 +722,12 @@ public class LevenshteinAutomataFactory {
          */
         @Override
         public int getDistance(int w) {
-            return w - state.getRight() - state.getLeft().maxBaseOffset();
+            return LevenshteinAutomataFactory.this.getDistance(state, w);
         }
 
         @Override
         public int getMinEdits() {
-            return state.getLeft().getMinEdits();
+            return LevenshteinAutomataFactory.this.getMinEdits(state);
         }
 
         /**
@@ -245,12 +738,11 @@ public class LevenshteinAutomataFactory {
          */
         @Override
         public boolean isAcceptingState(int w) {
-            Pair<Integer, Integer> i = acceptingIntervals.get(state.getLeft());
-            return (i.getLeft() + w) <= state.getRight() && state.getRight() <= (i.getRight() + w);
+            return isAccepting(state, w);
         }
 
         /**
-         * Determines(in near constant time) the next state, given a symbol and the word of the simulated automata.
+         * Determines(in constant time) the next state, given a symbol and the word of the simulated automata.
          *
          * @param c the next symbol
          * @param w the word length
@@ -258,19 +750,43 @@ public class LevenshteinAutomataFactory {
          */
         @Override
         public State outState(char c, String w) {
-            int l = Math.min(w.length() - state.getRight(), 2 * maxN + 1);
-            w = w.substring(state.getRight(), state.getRight() + l);
-            CharacteristicVector cv = new CharacteristicVector(c, w);
-            return transitionTables.get(l).get(this, cv);
+            int offset = offset(state);
+            int l = Math.min(w.length() - offset, 2 * maxN + 1);
+            int vector = 0;
+            for (int k = 0; k < l; k++) {
+                if (w.charAt(offset + k) == c) {
+                    vector |= 1 << k;
+                }
+            }
+            return wrap(step(state, l, vector));
+        }
+
+        /**
+         * Determines(in constant time) the next state, given a symbol and the characteristic vectors of the word of
+         * the simulated automata.
+         *
+         * @param c       the next symbol
+         * @param vectors the characteristic vectors of the word
+         * @return The next state, or {@code null} if this transition results in a failure state.
+         */
+        @Override
+        public State outState(char c, CharacteristicVectors vectors) {
+            return wrap(step(state, c, vectors));
+        }
+
+        /**
+         * Wraps a primitive state.
+         *
+         * @param next the primitive state.
+         * @return the state as an object, or {@code null} for the failure state.
+         */
+        private State wrap(long next) {
+            return next == FAILURE_STATE ? null : new StateWrapper(next);
         }
 
         @Override
         public String toString() {
-            if (reduced) {
-                return state.toString();
-            } else {
-                return state.getLeft().toString(state.getRight());
-            }
+            return "(" + stateId(state) + ", " + offset(state) + ")";
         }
     }
 
@@ -280,10 +796,6 @@ public class LevenshteinAutomataFactory {
     private class ParametricState {
 
         private final Set<ParametricPosition> positions;
-        int hash;
-        Object o;
-        int maxBase;
-        int minEdits;
 
         /**
          * Creates a empty state.
@@ -315,25 +827,24 @@ public class LevenshteinAutomataFactory {
         }
 
         /**
-         * Adds a position to this state.<br>
-         * Note that it is not checked if this position is subsumed by this state.
-         *
-         * @param p The position to add
+         * Calculates the biggest offset of all standard (non t-) positions in this state.
+         * @return the biggest offset in this state.
          */
-        void addPosition(ParametricPosition p) {
-            positions.add(p);
+        int maxOffset() {
+            return positions.stream()
+                    .filter(p -> !p.transposed)
+                    .mapToInt(p -> p.indexOffset)
+                    .max()
+                    .orElse(0);
         }
 
-
         /**
-         * Calculates the biggest offset of all position in this state.
-         * @return the biggest offset in this state.
+         * Checks whether this state contains a standard (non t-) position.
+         *
+         * @return {@code true} if this state contains a standard position.
          */
-        int maxOffset() {
-            if (positions.isEmpty()) {
-                return 0;
-            }
-            return max(positions, (o1, o2) -> o1.indexOffset - o2.indexOffset).indexOffset;
+        boolean hasStandardPositions() {
+            return positions.stream().anyMatch(p -> !p.transposed);
         }
 
         /**
@@ -356,8 +867,8 @@ public class LevenshteinAutomataFactory {
             int min = minOffset();
             ParametricState result = new ParametricState();
             result.positions.addAll(positions
-                    .parallelStream()
-                    .map(p -> new ParametricPosition(p.indexOffset - min, p.edits))
+                    .stream()
+                    .map(p -> new ParametricPosition(p.indexOffset - min, p.edits, p.transposed))
                     .collect(Collectors.toSet()));
             return result;
         }
@@ -384,53 +895,25 @@ public class LevenshteinAutomataFactory {
          * @return the maximal possible base position.
          */
         int maxBaseOffset() {
-            if (reduced) {
-                return maxBase;
-            }
-            if (positions.isEmpty()) {
-                return 0;
-            }
-            return max(positions.stream().map(p -> p.indexOffset - p.edits).collect(Collectors.toSet()));
-        }
-
-        /**
-         * Returns the accepting interval relative to the word length.<br>
-         *
-         * @return A {@link Pair} of non-positive integers corresponding to the relative accepting interval
-         */
-        Pair<Integer, Integer> acceptingInterval() {
-            if (positions.isEmpty()) {
-                return null;
-            }
-            return new Pair<>(-maxBaseOffset() - maxN, -maxOffset());
+            return positions.stream()
+                    .filter(p -> !p.transposed)
+                    .mapToInt(p -> p.indexOffset - p.edits)
+                    .max()
+                    .orElse(0);
         }
 
-
         @Override
         public int hashCode() {
-            if (reduced) {
-                return hash;
-            }
             return positions.hashCode();
         }
 
         @Override
         public boolean equals(Object o) {
-            if (o instanceof ParametricState) {
-                if (reduced) {
-                    return ((ParametricState) o).o == this.o;
-                } else {
-                    return ((ParametricState) o).positions.equals(positions);
-                }
-            }
-            return false;
+            return o instanceof ParametricState && ((ParametricState) o).positions.equals(positions);
         }
 
         @Override
         public String toString() {
-            if (reduced) {
-                return o.toString();
-            }
             if (positions.isEmpty()) {
                 return "∅";
             }
@@ -446,26 +929,6 @@ public class LevenshteinAutomataFactory {
             return result.toString();
         }
 
-        public String toString(int i) {
-            if (reduced) {
-                return o.toString();
-            }
-            if (positions.isEmpty()) {
-                return "∅";
-            }
-            StringBuilder result = new StringBuilder("{");
-            positions.forEach(p -> result.append(p.toString(i)).append(", "));
-            result.delete(result.length() - 2, result.length());
-            result.append("} ");
-            return result.toString();
-        }
-
-        ParametricState copy() {
-            ParametricState result = new ParametricState();
-            result.positions.addAll(positions);
-            return result;
-        }
-
         /**
          * Applies a characteristic vector to this state, given the offset of this state relative to the word length.
          *
@@ -484,9 +947,6 @@ public class LevenshteinAutomataFactory {
         }
 
         public int getMinEdits() {
-            if (reduced) {
-                return minEdits;
-            }
             if (positions.isEmpty()) {
                 return Integer.MAX_VALUE;
             }
@@ -498,59 +958,59 @@ public class LevenshteinAutomataFactory {
      * A parametric description of position(see 4.0.12).<br>
      * The {@code edits} field stands for the amount of edits up to this position(as for normal positions).<br>
      * The offset denotes the shift that is applied to a (unknown) base index {@code i}.<br>
-     * Example: {@code new ParametricPosition(3, 1)} represents a position (i+3)<sup>#1</sup>.
+     * Example: {@code new ParametricPosition(3, 1, false)} represents a position (i+3)<sup>#1</sup>.<br>
+     * A t-position (i+3)<sub>t</sub><sup>#1</sup> is halfway a transposition: the character at index i+4 of the word
+     * has been read, and the next character must be the one at index i+3.
      */
     private class ParametricPosition implements Comparable<ParametricPosition> {
         final int edits;
         final int indexOffset;
+        final boolean transposed;
 
         /**
          * Creates a new parametric position.
          *
          * @param i it's index offset
          * @param e it's amount of edits
+         * @param t whether it is a t-position
          */
-        ParametricPosition(int i, int e) {
+        ParametricPosition(int i, int e, boolean t) {
             edits = e;
             indexOffset = i;
+            transposed = t;
         }
 
 
         @Override
         public int hashCode() {
-            return edits * 31 + indexOffset;
+            return (edits * 31 + indexOffset) * 2 + (transposed ? 1 : 0);
         }
 
         @Override
         public boolean equals(Object o) {
             return o instanceof ParametricPosition
                     && edits == ((ParametricPosition) o).edits
-                    && indexOffset == ((ParametricPosition) o).indexOffset;
-        }
-
-        /**
-         * Generates the subsumption triangle for this position(see 4.0.15).<br>
-         * Note that, contrary to the referred definition, this method includes this position in the result.
-         *
-         * @return The subusumption triangle, plus this position, sorted by amount of edits.
-         */
-        List<ParametricPosition> subsumptionTriangle() {
-            List<ParametricPosition> result = new ArrayList<>();
-            for (int e = 0; e <= maxN - edits; e++) {
-                for (int i = -e; i <= e; i++) {
-                    result.add(new ParametricPosition(i + indexOffset, e + edits));
-                }
-            }
-            return result;
+                    && indexOffset == ((ParametricPosition) o).indexOffset
+                    && transposed == ((ParametricPosition) o).transposed;
         }
 
         /**
-         * Checks whether of not a this position subsumes an other position(see 4.0.15)
+         * Checks whether of not a this position subsumes an other position(see 4.0.15).<br>
+         * A t-position only leads to the standard position two indices further without extra edits, so a standard
+         * position subsumes it if it subsumes the standard position one index further with one edit less. This is a
+         * safe subset of the subsumption relation of section 7, t-positions only subsume t-positions with the same
+         * index, and never subsume standard positions.
          *
          * @param o the position to check
          * @return {@code true} if {@code o} is subsumed by {@code this}
          */
         boolean subsumes(ParametricPosition o) {
+            if (transposed) {
+                return o.transposed && indexOffset == o.indexOffset && edits < o.edits;
+            } else if (o.transposed) {
+                return edits < o.edits
+                        && Math.abs(indexOffset - (o.indexOffset + 1)) <= o.edits - edits - 1;
+            }
             return edits < o.edits
                     && Math.abs(indexOffset - o.indexOffset) <= o.edits - edits;
         }
@@ -558,7 +1018,7 @@ public class LevenshteinAutomataFactory {
         @Override
         public String toString() {
             String i = indexOffset == 0 ? "i" : ("(i " + (indexOffset > 0 ? "+ " : "- ") + Math.abs(indexOffset) + ")");
-            return i + "#" + edits;
+            return i + (transposed ? "_t" : "") + "#" + edits;
         }
 
         /**
@@ -577,14 +1037,22 @@ public class LevenshteinAutomataFactory {
             int i = indexOffset;
 
             int e = edits;
-            if (0 <= edits && edits <= maxN - 1) {
+            if (transposed) {
+                // the transposition is completed if the next character is the one that was skipped
+                if (offset <= -1 && j == 1) {
+                    result.add(new ParametricPosition(i + 2, e, false));
+                }
+            } else if (0 <= edits && edits <= maxN - 1) {
                 if (offset <= -2) {
                     if (j == 1) {
                         result.addAll(constructPositions(new int[][]{{i + 1, e}}));
                     } else if (j == 0 || (j - 1 + e > maxN)) {
                         result.addAll(constructPositions(new int[][]{{i, e + 1}, {i + 1, e + 1}}));
                     } else {
-                            result.addAll(constructPositions(new int[][]{{i, e + 1}, {i + 1, e + 1}, {i + j, e + j - 1}}));
+                        result.addAll(constructPositions(new int[][]{{i, e + 1}, {i + 1, e + 1}, {i + j, e + j - 1}}));
+                        if (transpositions && j == 2) {
+                            result.add(new ParametricPosition(i, e + 1, true));
+                        }
                     }
                 } else if (offset == -1) {
                     if (j == 1) {
@@ -608,106 +1076,27 @@ public class LevenshteinAutomataFactory {
         }
 
         public String toString(int i) {
-            return (indexOffset + i) + "#" + edits;
+            return (indexOffset + i) + (transposed ? "_t" : "") + "#" + edits;
         }
     }
 
     /**
-     * A transition table for a particular length of the relative subword.
-     */
-    private class TransitionTable {
-        Map<Pair<ParametricState, CharacteristicVector>, Pair<ParametricState, Integer>> table;
-
-        /**
-         * Constructs a transition table for a given vector length
-         *
-         * @param l the given vector length.
-         */
-        TransitionTable(int l) {
-            constructTable(l);
-        }
-
-        /**
-         * Reduces the states in this table.
-         *
-         * @param mapping object mapping to be used.
-         */
-        void reduce(Map<ParametricState, Object> mapping) {
-            for (Pair<ParametricState, Integer> pair : table.values()) {
-                ParametricState pState = pair.getLeft();
-                pState.o = mapping.get(pState);
-                pState.hash = pState.hashCode();
-                pState.maxBase = pState.maxBaseOffset();
-                pState.minEdits = pState.getMinEdits();
-                pState.positions.clear();
-            }
-        }
-
-        /**
-         * Applies the transition function to retrieve the next state.
-         *
-         * @param s  The previous state
-         * @param cv the vector to apply
-         * @return the next state
-         */
-        State get(StateWrapper s, CharacteristicVector cv) {
-            Pair<ParametricState, Integer> value = table.get(new Pair<>(s.state.getLeft(), cv));
-            if (value == null) {
-                return null;
-            }
-            return new StateWrapper(new Pair<>(value.getLeft(), value.getRight() + s.state.getRight()));
-        }
-
-        /**
-         * Constructs this transtition table
-         *
-         * @param l the length of characteristic vector to include
-         */
-        void constructTable(int l) {
-            Set<CharacteristicVector> vectors = vectorCombinations(l);
-            table = new HashMap<>();
-            for (ParametricState p : pStates) {
-                if (p.isEmpty() || p.maxOffset() > l) {
-                    continue;
-                }
-                for (CharacteristicVector v : vectors) {
-                    ParametricState out = p.applyVector(v, -l);
-                    if (out.isEmpty()) {
-                        continue;
-                    }
-                    int offset = out.minOffset();// offset >= 0?
-                    out = out.shiftToLeft();
-                    table.put(new Pair<>(p, v), new Pair<>(out, offset));
-                }
-            }
-        }
-
-    }
-
-    /**
-     * Represents a characteristic vector as defined in 4.0.10
+     * Represents a characteristic vector as defined in 4.0.10, as the bits of an {@code int}: bit {@code k} is set
+     * if the character at index {@code k} of the relevant subword equals the next symbol.
      */
     private class CharacteristicVector {
-        Boolean[] value;
-
-        /**
-         * Creates the characteristic vector for a given string and character.<br>
-         * According to 4.0.10, the resulting instance represents χ(x,w).
-         *
-         * @param x the char to use
-         * @param w the string to use
-         */
-        CharacteristicVector(char x, String w) {
-            value = w.chars().mapToObj(i -> (char) i == x).toArray(Boolean[]::new);
-        }
+        final int bits;
+        final int length;
 
         /**
          * Creates a vector with a given value.
          *
-         * @param v the given value
+         * @param bits   the bits of the vector.
+         * @param length the length of the vector.
          */
-        CharacteristicVector(Boolean[] v) {
-            value = v;
+        CharacteristicVector(int bits, int length) {
+            this.bits = bits;
+            this.length = length;
         }
 
 
@@ -719,8 +1108,8 @@ public class LevenshteinAutomataFactory {
          * @return The index of the first occurence of a 1, starting at k, or -1 if it could not be found.
          */
         int minimalIndex(int k) {
-            for (int i = k; i < value.length; i++) {
-                if (value[i]) {
+            for (int i = k; i < length; i++) {
+                if ((bits & (1 << i)) != 0) {
                     return i - k;
                 }
             }
@@ -729,17 +1118,11 @@ public class LevenshteinAutomataFactory {
 
         @Override
         public String toString() {
-            return "<" + Arrays.stream(value).reduce("", (s, b) -> s + (b ? '1' : '0'), ((s, s2) -> s + s2)) + ">";
-        }
-
-        @Override
-        public int hashCode() {
-            return Arrays.stream(value).reduce(0, (i, b) -> i * 2 + (b ? 1 : 0), (i, j) -> i + j);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            return o instanceof CharacteristicVector && Arrays.equals(value, ((CharacteristicVector) o).value);
+            StringBuilder result = new StringBuilder("<");
+            for (int i = 0; i < length; i++) {
+                result.append((bits & (1 << i)) != 0 ? '1' : '0');
+            }
+            return result.append(">").toString();
         }
     }
 
@@ -0,0 +1,55 @@
+package api.didyoumean.levenshteinautomata;
+
+/**
+ * A Levenshtein automaton that is simulated with the transition tables of a {@link LevenshteinAutomataFactory}.
+ * Creating one costs next to nothing, but every transition computes a characteristic vector.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+class SimulatedAutomaton implements Automaton {
+    private final LevenshteinAutomataFactory laf;
+    private final CharacteristicVectors vectors;
+    private final int w;
+
+    /**
+     * Creates a simulated automaton for a word.
+     *
+     * @param laf  the factory for simulating Levenshtein automata.
+     * @param word the word of the automaton.
+     */
+    SimulatedAutomaton(LevenshteinAutomataFactory laf, String word) {
+        this.laf = laf;
+        this.vectors = new CharacteristicVectors(word);
+        this.w = word.length();
+    }
+
+    @Override
+    public long getInitState() {
+        return laf.getInitState();
+    }
+
+    @Override
+    public long step(long state, char c) {
+        return laf.step(state, c, vectors);
+    }
+
+    @Override
+    public boolean isAccepting(long state) {
+        return laf.isAccepting(state, w);
+    }
+
+    @Override
+    public int getDistance(long state) {
+        return laf.getDistance(state, w);
+    }
+
+    @Override
+    public int getMinEdits(long state) {
+        return laf.getMinEdits(state);
+    }
+
+    @Override
+    public int getMaxDistance() {
+        return laf.getMaxDistance();
+    }
+}
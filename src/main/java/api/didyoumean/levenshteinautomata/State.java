@@ -24,6 +24,15 @@ public abstract class State {
      */
     public abstract State outState(char c, String w);
 
+    /**
+     * Returns the next state for a given symbol, using the precalculated characteristic vectors of the word.
+     *
+     * @param c       the next symbol
+     * @param vectors the characteristic vectors of the word
+     * @return the next state for the given parameters, or {@code null} if these would lead to a failure state.
+     */
+    public abstract State outState(char c, CharacteristicVectors vectors);
+
     /**
      * Gets the Levenshtein distance between the word of this Levenshtein-automata and the word corresponding to the
      * symbols that are used to get to this state.
@@ -0,0 +1,145 @@
+package api.didyoumean.levenshteinautomata;
+
+import api.tree.Trie;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of pairs of a {@link Trie} node and a primitive automaton state, with the highest score first.
+ * Pairs with the same score are ordered by weight, highest first.<br>
+ * The queue is a binary heap stored in parallel arrays, so that adding and removing pairs does not allocate any objects
+ * once the arrays are big enough.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+class StateQueue {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] nodes = new int[INITIAL_CAPACITY];
+    private long[] states = new long[INITIAL_CAPACITY];
+    private double[] scores = new double[INITIAL_CAPACITY];
+    private int[] weights = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a pair to this queue.
+     *
+     * @param node    the handle of the node of the pair.
+     * @param state   the primitive state of the pair.
+     * @param score   the score of the pair.
+     * @param weight  the weight of the pair, which breaks ties between equal scores.
+     */
+    void add(int node, long state, double score, int weight) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (compare(scores[parent], weights[parent], score, weight) >= 0) {
+                break;
+            }
+            set(i, parent);
+            i = parent;
+        }
+        nodes[i] = node;
+        states[i] = state;
+        scores[i] = score;
+        weights[i] = weight;
+    }
+
+    /**
+     * Indicates whether this queue is empty.
+     *
+     * @return {@code true} if this queue contains no pairs; otherwise {@code false}.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the node of the pair with the highest score.
+     *
+     * @return the handle of the node of the first pair.
+     */
+    int node() {
+        return nodes[0];
+    }
+
+    /**
+     * Returns the primitive state of the pair with the highest score.
+     *
+     * @return the state of the first pair.
+     */
+    long state() {
+        return states[0];
+    }
+
+    /**
+     * Returns the highest score in this queue.
+     *
+     * @return the score of the first pair.
+     */
+    double score() {
+        return scores[0];
+    }
+
+    /**
+     * Removes the pair with the highest score.
+     */
+    void remove() {
+        int last = --size;
+        int node = nodes[last];
+        long state = states[last];
+        double score = scores[last];
+        int weight = weights[last];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && compare(scores[child + 1], weights[child + 1], scores[child], weights[child]) > 0) {
+                child++;
+            }
+            if (compare(scores[child], weights[child], score, weight) <= 0) {
+                break;
+            }
+            set(i, child);
+            i = child;
+        }
+        if (last > 0) {
+            nodes[i] = node;
+            states[i] = state;
+            scores[i] = score;
+            weights[i] = weight;
+        }
+    }
+
+    /**
+     * Compares two pairs by score, and then by weight.
+     *
+     * @param score1  the score of the first pair.
+     * @param weight1 the weight of the first pair.
+     * @param score2  the score of the second pair.
+     * @param weight2 the weight of the second pair.
+     * @return a positive value if the first pair comes first, a negative value if the second pair comes first, or 0.
+     */
+    private static int compare(double score1, int weight1, double score2, int weight2) {
+        int result = Double.compare(score1, score2);
+        return result != 0 ? result : Integer.compare(weight1, weight2);
+    }
+
+    /**
+     * Moves a pair within the heap.
+     *
+     * @param to   the index to move the pair to.
+     * @param from the index of the pair.
+     */
+    private void set(int to, int from) {
+        nodes[to] = nodes[from];
+        states[to] = states[from];
+        scores[to] = scores[from];
+        weights[to] = weights[from];
+    }
+}
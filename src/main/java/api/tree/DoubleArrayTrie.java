@@ -0,0 +1,341 @@
+package api.tree;
+
+import java.util.Arrays;
+
+import static api.tree.Element.TERM;
+
+/**
+ * A {@link Trie} stored in a few {@code int} arrays instead of an object per letter.<br>
+ * Every letter gets a code (in the order letters are first seen, {@link Element#TERM} has code 0). The children of a
+ * node {@code s} are at index {@code base[s] + code}, and {@code check[t]} holds the parent of index {@code t}, so a
+ * child is found with two array lookups (see Aoe, "An efficient digital search algorithm by using a double-array
+ * structure"). The weights, and a linked list of the children of every node for iteration, are stored in parallel
+ * arrays. When the index of a new child is already taken, all children of its parent are moved to a new base. The
+ * free indices form a linked list, so that a new base is found without scanning the indices that are in use. A leaf has
+ * no children, so its base holds the term id of its keyword in a {@link TermTable}.<br>
+ * <br>
+ * Keywords can be added while no other thread searches this trie; searching from several threads at once is safe.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class DoubleArrayTrie implements Trie {
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * The value of {@link #check} for an index that is not in use.
+     */
+    private static final int FREE = -1;
+    private static final int ROOT = 0;
+
+    /**
+     * The base of every node, the term id for a leaf, or the next free index for a free index.
+     */
+    private int[] base;
+    private int[] check;
+    private int[] weights;
+    private int[] firstChildren;
+    /**
+     * The next sibling of every node, or the previous free index for a free index.
+     */
+    private int[] siblings;
+    /**
+     * The first free index, or {@link #NONE} if every index is in use.
+     */
+    private int firstFree = NONE;
+    /**
+     * The code of every letter, or 0 if it has none yet (except for {@link Element#TERM}).
+     */
+    private int[] codes = new int[128];
+    /**
+     * The letter of every code.
+     */
+    private char[] letters = new char[]{TERM};
+    private final TermTable terms = new TermTable();
+
+    /**
+     * Creates an empty trie.
+     */
+    public DoubleArrayTrie() {
+        base = new int[0];
+        check = new int[0];
+        weights = new int[0];
+        firstChildren = new int[0];
+        siblings = new int[0];
+        ensureCapacity(INITIAL_CAPACITY);
+        occupy(ROOT);
+        check[ROOT] = NONE;
+        base[ROOT] = 0;
+        siblings[ROOT] = NONE;
+    }
+
+    @Override
+    public int root() {
+        return ROOT;
+    }
+
+    @Override
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    @Override
+    public int nextSibling(int node) {
+        return siblings[node];
+    }
+
+    @Override
+    public int child(int node, char letter) {
+        int code = codeOf(letter);
+        if (code < 0 || firstChildren[node] == NONE) {
+            return NONE;
+        }
+        int t = base[node] + code;
+        return t < check.length && check[t] == node ? t : NONE;
+    }
+
+    @Override
+    public char letter(int node) {
+        return letters[node - base[check[node]]];
+    }
+
+    @Override
+    public int weight(int node) {
+        return weights[node];
+    }
+
+    @Override
+    public boolean isLeaf(int node) {
+        return node != ROOT && node == base[check[node]];
+    }
+
+    @Override
+    public String word(int node) {
+        if (isLeaf(node)) {
+            return terms.get(base[node]);
+        }
+        StringBuilder word = new StringBuilder();
+        for (int t = node; t != ROOT; t = check[t]) {
+            word.append(letter(t));
+        }
+        return word.reverse().toString();
+    }
+
+    @Override
+    public int termId(int leaf) {
+        return base[leaf];
+    }
+
+    @Override
+    public String term(int termId) {
+        return terms.get(termId);
+    }
+
+    @Override
+    public synchronized void addOrIncrementWord(String k, int w) {
+        if (k.indexOf(TERM) != -1) {
+            throw new IllegalArgumentException("Keyword may not contain the reserved termination character.");
+        } else if (w < 0) {
+            throw new IllegalArgumentException("Weight must be at least 0.");
+        }
+        int node = ROOT;
+        for (int i = 0; i < k.length(); i++) {
+            node = addOrGetChild(node, codeOrAdd(k.charAt(i)));
+        }
+        int leaf = child(node, TERM);
+        if (leaf == NONE) {
+            leaf = addOrGetChild(node, 0);
+            base[leaf] = terms.add(k);
+        }
+        weights[leaf] += w;
+        // like Element#setWeight, the ancestors hold the maximal weight below them
+        for (int t = check[leaf]; t != NONE && weights[t] < weights[leaf]; t = check[t]) {
+            weights[t] = weights[leaf];
+        }
+    }
+
+    /**
+     * Returns the code of a letter.
+     *
+     * @param letter the letter
+     * @return the code of {@code letter}, or -1 if no keyword contains it
+     */
+    private int codeOf(char letter) {
+        if (letter == TERM) {
+            return 0;
+        }
+        return letter < codes.length && codes[letter] != 0 ? codes[letter] : -1;
+    }
+
+    /**
+     * Returns the code of a letter, and gives it the next code if it has none yet.
+     *
+     * @param letter the letter
+     * @return the code of {@code letter}
+     */
+    private int codeOrAdd(char letter) {
+        int code = codeOf(letter);
+        if (code < 0) {
+            if (letter >= codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(letter + 1, codes.length * 2));
+            }
+            code = letters.length;
+            letters = Arrays.copyOf(letters, code + 1);
+            letters[code] = letter;
+            codes[letter] = code;
+        }
+        return code;
+    }
+
+    /**
+     * Creates and adds a new child to a node if it has no child with the same code yet.
+     *
+     * @param node the node
+     * @param code the code of the letter of the child
+     * @return the index of the child with {@code code}
+     */
+    private int addOrGetChild(int node, int code) {
+        if (firstChildren[node] == NONE) {
+            base[node] = findBase(new int[]{code});
+        } else {
+            int t = base[node] + code;
+            if (t < check.length && check[t] == node) {
+                return t;
+            } else if (t < check.length && check[t] != FREE) {
+                relocate(node, code);
+            }
+        }
+        int t = base[node] + code;
+        ensureCapacity(t + 1);
+        occupy(t);
+        check[t] = node;
+        base[t] = 0;
+        siblings[t] = firstChildren[node];
+        firstChildren[node] = t;
+        return t;
+    }
+
+    /**
+     * Moves all children of a node to a new base, where the indices of the children and a new child are free.
+     *
+     * @param node    the node
+     * @param newCode the code of the new child
+     */
+    private void relocate(int node, int newCode) {
+        int count = 0;
+        for (int t = firstChildren[node]; t != NONE; t = siblings[t]) {
+            count++;
+        }
+        int[] children = new int[count];
+        int[] childCodes = new int[count + 1];
+        int i = 0;
+        for (int t = firstChildren[node]; t != NONE; t = siblings[t], i++) {
+            children[i] = t;
+            childCodes[i] = t - base[node];
+        }
+        childCodes[count] = newCode;
+        int newBase = findBase(childCodes);
+        ensureCapacity(newBase + Arrays.stream(childCodes).max().getAsInt() + 1);
+
+        for (i = 0; i < count; i++) {
+            int from = children[i];
+            int to = newBase + childCodes[i];
+            occupy(to);
+            check[to] = node;
+            base[to] = base[from];
+            weights[to] = weights[from];
+            firstChildren[to] = firstChildren[from];
+            siblings[to] = i + 1 < count ? newBase + childCodes[i + 1] : NONE;
+            for (int grandchild = firstChildren[from]; grandchild != NONE; grandchild = siblings[grandchild]) {
+                check[grandchild] = to;
+            }
+            weights[from] = 0;
+            firstChildren[from] = NONE;
+            release(from);
+        }
+        firstChildren[node] = newBase + childCodes[0];
+        base[node] = newBase;
+    }
+
+    /**
+     * Finds a base at which the indices of a set of codes are all free.
+     *
+     * @param codes the codes, not empty
+     * @return a base greater than the root at which all indices are free (or beyond the arrays)
+     */
+    private int findBase(int[] codes) {
+        for (int t = firstFree; t != NONE; t = base[t]) {
+            int candidate = t - codes[0];
+            if (candidate <= ROOT) {
+                continue;
+            }
+            boolean free = true;
+            for (int i = 1; i < codes.length && free; i++) {
+                int index = candidate + codes[i];
+                free = index >= check.length || check[index] == FREE;
+            }
+            if (free) {
+                return candidate;
+            }
+        }
+        return check.length;
+    }
+
+    /**
+     * Takes a free index out of the list of free indices.
+     *
+     * @param t the free index
+     */
+    private void occupy(int t) {
+        int next = base[t];
+        int previous = siblings[t];
+        if (previous == NONE) {
+            firstFree = next;
+        } else {
+            base[previous] = next;
+        }
+        if (next != NONE) {
+            siblings[next] = previous;
+        }
+        check[t] = ROOT;
+    }
+
+    /**
+     * Adds an index that is no longer in use to the list of free indices.
+     *
+     * @param t the index
+     */
+    private void release(int t) {
+        check[t] = FREE;
+        base[t] = firstFree;
+        siblings[t] = NONE;
+        if (firstFree != NONE) {
+            siblings[firstFree] = t;
+        }
+        firstFree = t;
+    }
+
+    /**
+     * Grows the arrays so that they have at least a given length.
+     *
+     * @param capacity the minimal length
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > check.length) {
+            int oldCapacity = check.length;
+            int newCapacity = Math.max(capacity, oldCapacity * 2);
+            base = Arrays.copyOf(base, newCapacity);
+            check = Arrays.copyOf(check, newCapacity);
+            weights = Arrays.copyOf(weights, newCapacity);
+            firstChildren = Arrays.copyOf(firstChildren, newCapacity);
+            siblings = Arrays.copyOf(siblings, newCapacity);
+            Arrays.fill(firstChildren, oldCapacity, newCapacity, NONE);
+            for (int t = newCapacity - 1; t >= oldCapacity; t--) {
+                release(t);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleArrayTrie(" + weights[ROOT] + ")";
+    }
+}
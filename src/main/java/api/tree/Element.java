@@ -1,5 +1,7 @@
 package api.tree;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -16,7 +18,15 @@ public abstract class Element {
 
     private final char letter;
     private final Node parent;
+    /**
+     * The handle of this Element, assigned by {@link Root#register} when it is added as child.
+     */
+    private int id;
     private int weight;
+    /**
+     * The next child of {@link #parent}, see {@link #getFirstChild()}.
+     */
+    private Element nextSibling;
 
     /**
      * Initializes a new Element.
@@ -40,6 +50,60 @@ public abstract class Element {
         this.parent = parent;
     }
 
+    /**
+     * Gets the handle of this Element in the {@link Trie} of its {@link Root}.
+     *
+     * @return the handle of this Element, 0 for the {@link Root} (and for an Element that was never added as child)
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the handle of this Element, when it is registered by its {@link Root} before it is added as child.
+     *
+     * @param id the handle of this Element
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the root of the api.tree of this Element.
+     *
+     * @return the {@link Root} above this Element
+     */
+    Root getRoot() {
+        return parent.getRoot();
+    }
+
+    /**
+     * Gets the first child of this Element. The other children follow through {@link #getNextSibling()}.
+     *
+     * @return the most recently added child; or {@code null} when this Element has no children
+     */
+    Element getFirstChild() {
+        return null;
+    }
+
+    /**
+     * Gets the next child of the parent of this Element.
+     *
+     * @return the next sibling of this Element; or {@code null} when this Element is the last child of its parent
+     */
+    Element getNextSibling() {
+        return nextSibling;
+    }
+
+    /**
+     * Sets the next child of the parent of this Element, before this Element is added as child.
+     *
+     * @param nextSibling the next sibling of this Element
+     */
+    void setNextSibling(Element nextSibling) {
+        this.nextSibling = nextSibling;
+    }
+
     /**
      * Gets the letter of this Element.
      *
@@ -103,6 +167,16 @@ public abstract class Element {
         return new HashSet<>();
     }
 
+    /**
+     * Returns an unmodifiable view of all elements directly under this Element. Contrary to {@link #getChildren()},
+     * the children are not copied, so the view reflects later changes to this Element.
+     *
+     * @return a view of the elements directly under this Element
+     */
+    public Collection<Element> getChildView() {
+        return Collections.emptyList();
+    }
+
     /**
      * Checks if this Element has a child with the given letter.
      *
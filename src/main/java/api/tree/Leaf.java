@@ -6,6 +6,12 @@ package api.tree;
  * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
  */
 public class Leaf extends Element {
+    /**
+     * The term id of a Leaf whose keyword is not in the {@link TermTable} of its {@link Root}.
+     */
+    static final int NO_TERM = -1;
+
+    private final int termId;
 
     /**
      * Initializes a new Leaf.
@@ -14,7 +20,40 @@ public class Leaf extends Element {
      * @param parent the parent of this Leaf, may not be {@code null} use {@link Root} as root
      */
     Leaf(Node parent) {
+        this(parent, NO_TERM);
+    }
+
+    /**
+     * Initializes a new Leaf for a keyword in the {@link TermTable} of its {@link Root}.
+     * The new Leaf is not added as child to the given parent.
+     *
+     * @param parent the parent of this Leaf, may not be {@code null} use {@link Root} as root
+     * @param termId the term id of the keyword, or {@link #NO_TERM}
+     */
+    Leaf(Node parent, int termId) {
         super(TERM, parent);
+        this.termId = termId;
+    }
+
+    /**
+     * Gets the term id of the keyword of this Leaf.
+     *
+     * @return the id of the keyword in {@link Root#getTerms()}, or {@link #NO_TERM} if this Leaf was not added
+     * through {@link Root#addOrIncrementWord}
+     */
+    public int getTermId() {
+        return termId;
+    }
+
+    /**
+     * Gets the keyword of this Leaf, terminated with {@link #TERM}.
+     * When this Leaf has a term id, the keyword is looked up instead of concatenated from the letters of its parents.
+     *
+     * @return the keyword of this Leaf
+     */
+    @Override
+    public String getWord() {
+        return termId == NO_TERM ? super.getWord() : getRoot().getTerms().get(termId) + TERM;
     }
 
     /**
@@ -1,5 +1,7 @@
 package api.tree;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -11,6 +13,11 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class Node extends Element {
     private final ConcurrentHashMap<Character, Element> children;
+    private final Collection<Element> childView;
+    /**
+     * The most recently added child, the start of a linked list through {@link Element#getNextSibling()}.
+     */
+    private volatile Element firstChild;
 
     /**
      * Initializes a new Node.
@@ -22,6 +29,7 @@ public class Node extends Element {
     Node(char letter, Node parent) {
         super(letter, parent);
         children = new ConcurrentHashMap<>();
+        childView = Collections.unmodifiableCollection(children.values());
     }
 
     @Override
@@ -29,6 +37,16 @@ public class Node extends Element {
         return new HashSet<>(children.values());
     }
 
+    @Override
+    public Collection<Element> getChildView() {
+        return childView;
+    }
+
+    @Override
+    Element getFirstChild() {
+        return firstChild;
+    }
+
     @Override
     public boolean hasChild(char letter) {
         return children.containsKey(letter);
@@ -47,11 +65,27 @@ public class Node extends Element {
      * @param w the weight
      */
     void addOrIncrementWord(String k, int w) {
-        Element child = addOrGetChild(k.charAt(0));
-        if (child.isLeaf()) {
-            child.setWeight(child.getWeight() + w);
-        } else {
-            ((Node) child).addOrIncrementWord(k.substring(1), w);
+        addOrIncrementWord(k, w, null);
+    }
+
+    /**
+     * Adds the given (sub)keyword to this Node,
+     * when already present the given weight is added to the current weight.
+     *
+     * @param k    the keyword, must be terminated with a null char.
+     * @param w    the weight
+     * @param term the whole keyword (without the null char) that is added to the {@link TermTable} of the
+     *             {@link Root} when a new Leaf is created; or {@code null} to create the Leaf without term id
+     */
+    void addOrIncrementWord(String k, int w, String term) {
+        Node node = this;
+        for (int i = 0; ; i++) {
+            Element child = node.addOrGetChild(k.charAt(i), term);
+            if (child.isLeaf()) {
+                child.setWeight(child.getWeight() + w);
+                return;
+            }
+            node = (Node) child;
         }
     }
 
@@ -59,21 +93,25 @@ public class Node extends Element {
      * Creates and adds a new child to this node if not already a child with the same letter.
      *
      * @param letter the letter of the new {@link Element}, 0 for a Leaf.
+     * @param term   the keyword of a new Leaf, see {@link #addOrIncrementWord(String, int, String)}
      * @return the new added {@link Element} if there was not already a child with the same letter;
      * otherwise the {@link Element} with the same letter that is already a child of this Node
      */
-    private Element addOrGetChild(char letter) {
+    private Element addOrGetChild(char letter, String term) {
         Element result;
 
         if (children.containsKey(letter)) {
             result = children.get(letter);
         } else {
             if (letter == 0) {
-                result = new Leaf(this);
+                result = new Leaf(this, term == null ? Leaf.NO_TERM : getRoot().getTerms().add(term));
             } else {
                 result = new Node(letter, this);
             }
+            result.setNextSibling(firstChild);
+            getRoot().register(result);
             children.put(letter, result);
+            firstChild = result;
         }
 
         return result;
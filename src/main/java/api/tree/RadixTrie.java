@@ -0,0 +1,238 @@
+package api.tree;
+
+import java.util.Arrays;
+
+import static api.tree.Element.TERM;
+
+/**
+ * A path-compressed {@link Trie} (also known as a radix tree or Patricia trie), stored in {@code int} arrays.<br>
+ * A chain of nodes with a single child is stored as one node, whose edge carries the letters of the whole chain as
+ * label. Labels are slices of a shared {@code char} buffer: a new edge appends the rest of its keyword to the buffer,
+ * and splitting an edge when a keyword leaves it halfway only splits its slice. The leaf at the end of every keyword
+ * is a separate node with the label {@link Element#TERM}, which is not in the buffer: a leaf is stored with an empty
+ * slice, whose start is the term id of its keyword in a {@link TermTable}.<br>
+ * <br>
+ * Keywords can be added while no other thread searches this trie; searching from several threads at once is safe.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class RadixTrie implements Trie {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int ROOT = 0;
+
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] firstChildren = new int[INITIAL_CAPACITY];
+    private int[] siblings = new int[INITIAL_CAPACITY];
+    private int[] weights = new int[INITIAL_CAPACITY];
+    /**
+     * The index of the label of every node in {@link #labels}, or the term id for a leaf.
+     */
+    private int[] labelStarts = new int[INITIAL_CAPACITY];
+    private int[] labelLengths = new int[INITIAL_CAPACITY];
+    private int size;
+    /**
+     * The letters of all labels.
+     */
+    private char[] labels = new char[INITIAL_CAPACITY];
+    private int labelsSize;
+    private final TermTable terms = new TermTable();
+
+    /**
+     * Creates an empty trie.
+     */
+    public RadixTrie() {
+        newNode(NONE, 0, 0);
+    }
+
+    @Override
+    public int root() {
+        return ROOT;
+    }
+
+    @Override
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    @Override
+    public int nextSibling(int node) {
+        return siblings[node];
+    }
+
+    @Override
+    public int child(int node, char letter) {
+        for (int child = firstChildren[node]; child != NONE; child = siblings[child]) {
+            if (letter(child) == letter) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    @Override
+    public char letter(int node) {
+        return isLeaf(node) ? TERM : labels[labelStarts[node]];
+    }
+
+    @Override
+    public int labelLength(int node) {
+        return isLeaf(node) ? 1 : labelLengths[node];
+    }
+
+    @Override
+    public char labelAt(int node, int index) {
+        return isLeaf(node) ? TERM : labels[labelStarts[node] + index];
+    }
+
+    @Override
+    public int weight(int node) {
+        return weights[node];
+    }
+
+    @Override
+    public boolean isLeaf(int node) {
+        return node != ROOT && labelLengths[node] == 0;
+    }
+
+    @Override
+    public String word(int node) {
+        if (isLeaf(node)) {
+            return terms.get(labelStarts[node]);
+        }
+        StringBuilder word = new StringBuilder();
+        for (int t = node; t != ROOT; t = parents[t]) {
+            for (int i = labelLengths[t] - 1; i >= 0; i--) {
+                word.append(labels[labelStarts[t] + i]);
+            }
+        }
+        return word.reverse().toString();
+    }
+
+    @Override
+    public int termId(int leaf) {
+        return labelStarts[leaf];
+    }
+
+    @Override
+    public String term(int termId) {
+        return terms.get(termId);
+    }
+
+    /**
+     * Returns the number of nodes in this trie, including the root and the leaves.
+     *
+     * @return the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void addOrIncrementWord(String k, int w) {
+        if (k.indexOf(TERM) != -1) {
+            throw new IllegalArgumentException("Keyword may not contain the reserved termination character.");
+        } else if (w < 0) {
+            throw new IllegalArgumentException("Weight must be at least 0.");
+        }
+        int node = ROOT;
+        int i = 0;
+        while (i < k.length()) {
+            int child = child(node, k.charAt(i));
+            if (child == NONE) {
+                node = addChild(node, k.substring(i));
+                i = k.length();
+                break;
+            }
+            int common = 1;
+            while (common < labelLengths[child] && i + common < k.length()
+                    && labels[labelStarts[child] + common] == k.charAt(i + common)) {
+                common++;
+            }
+            if (common < labelLengths[child]) {
+                split(child, common);
+            }
+            node = child;
+            i += common;
+        }
+        int leaf = child(node, TERM);
+        if (leaf == NONE) {
+            leaf = newNode(node, terms.add(k), 0);
+        }
+        weights[leaf] += w;
+        // like Element#setWeight, the ancestors hold the maximal weight below them
+        for (int t = parents[leaf]; t != NONE && weights[t] < weights[leaf]; t = parents[t]) {
+            weights[t] = weights[leaf];
+        }
+    }
+
+    /**
+     * Adds a new child to a node, with a new label.
+     *
+     * @param node  the node
+     * @param label the label of the child
+     * @return the new child
+     */
+    private int addChild(int node, String label) {
+        if (labelsSize + label.length() > labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(labelsSize + label.length(), labels.length * 2));
+        }
+        label.getChars(0, label.length(), labels, labelsSize);
+        int child = newNode(node, labelsSize, label.length());
+        labelsSize += label.length();
+        return child;
+    }
+
+    /**
+     * Splits the edge to a node in two: the node keeps the first letters of its label, and gets a new child with
+     * the rest of the label and all children of the node.
+     *
+     * @param node   the node
+     * @param length the number of letters the node keeps, less than the length of its label
+     */
+    private void split(int node, int length) {
+        int rest = newNode(NONE, labelStarts[node] + length, labelLengths[node] - length);
+        labelLengths[node] = length;
+        parents[rest] = node;
+        weights[rest] = weights[node];
+        firstChildren[rest] = firstChildren[node];
+        for (int child = firstChildren[rest]; child != NONE; child = siblings[child]) {
+            parents[child] = rest;
+        }
+        firstChildren[node] = rest;
+    }
+
+    /**
+     * Creates a new node.
+     *
+     * @param parent      the parent of the node, which it is added to; or {@link #NONE}
+     * @param labelStart  the index of the label in {@link #labels}, or the term id for a leaf
+     * @param labelLength the length of the label, 0 for a leaf
+     * @return the new node
+     */
+    private int newNode(int parent, int labelStart, int labelLength) {
+        if (size == parents.length) {
+            int capacity = size * 2;
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            siblings = Arrays.copyOf(siblings, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            labelStarts = Arrays.copyOf(labelStarts, capacity);
+            labelLengths = Arrays.copyOf(labelLengths, capacity);
+        }
+        int node = size++;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        siblings[node] = parent == NONE ? NONE : firstChildren[parent];
+        if (parent != NONE) {
+            firstChildren[parent] = node;
+        }
+        labelStarts[node] = labelStart;
+        labelLengths[node] = labelLength;
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return "RadixTrie(" + weights[ROOT] + ")";
+    }
+}
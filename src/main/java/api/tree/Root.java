@@ -1,18 +1,132 @@
 package api.tree;
 
+import java.util.Arrays;
+
 /**
  * This class models the root of the api.tree.
- * The Root is a {@link Node} with no parent and no letter.
+ * The Root is a {@link Node} with no parent and no letter.<br>
+ * The Root is also a {@link Trie}: every {@link Element} that is added below it is registered with its
+ * {@link Element#getId() id} as handle, once it is fully constructed and just before it is added as child.
  *
  * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
  */
-public class Root extends Node {
+public class Root extends Node implements Trie {
+    /**
+     * Every element of this api.tree, by id. The array is replaced when it grows, after which an element is only
+     * published as child, so a reader that found an id always finds its element.
+     */
+    private volatile Element[] elements = new Element[16];
+    private int size;
+    private final TermTable terms = new TermTable();
 
     /**
      * Initializes a new Root.
      */
     public Root() {
         super((char) -1, null);
+        elements[size++] = this;
+    }
+
+    @Override
+    Root getRoot() {
+        return this;
+    }
+
+    /**
+     * Registers a new element of this api.tree and assigns its id. The element must be fully constructed, and may only
+     * be added as child afterwards, so that readers never see it before it is complete.
+     *
+     * @param element the new element
+     */
+    synchronized void register(Element element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size] = element;
+        element.setId(size++);
+    }
+
+    /**
+     * Gets the keywords of this api.tree, by the term id of their {@link Leaf}.
+     *
+     * @return the term table of this Root
+     */
+    public TermTable getTerms() {
+        return terms;
+    }
+
+    /**
+     * Gets the element of this api.tree with a given id.
+     *
+     * @param id the id of the element.
+     * @return the element with {@link Element#getId() id} {@code id}.
+     */
+    public Element getElement(int id) {
+        return elements[id];
+    }
+
+    @Override
+    public int root() {
+        return getId();
+    }
+
+    @Override
+    public int firstChild(int node) {
+        return idOf(getElement(node).getFirstChild());
+    }
+
+    @Override
+    public int nextSibling(int node) {
+        return idOf(getElement(node).getNextSibling());
+    }
+
+    @Override
+    public int child(int node, char letter) {
+        return idOf(getElement(node).getChild(letter));
+    }
+
+    @Override
+    public char letter(int node) {
+        return getElement(node).getLetter();
+    }
+
+    @Override
+    public int weight(int node) {
+        return getElement(node).getWeight();
+    }
+
+    @Override
+    public boolean isLeaf(int node) {
+        return getElement(node).isLeaf();
+    }
+
+    @Override
+    public String word(int node) {
+        Element element = getElement(node);
+        if (element.isLeaf() && ((Leaf) element).getTermId() != Leaf.NO_TERM) {
+            return terms.get(((Leaf) element).getTermId());
+        }
+        return element.getWord().replace(String.valueOf(TERM), "");
+    }
+
+    @Override
+    public int termId(int leaf) {
+        return ((Leaf) getElement(leaf)).getTermId();
+    }
+
+    @Override
+    public String term(int termId) {
+        return terms.get(termId);
+    }
+
+    /**
+     * Returns the handle of an element.
+     *
+     * @param element the element, may be {@code null}
+     * @return the id of {@code element}, or {@link #NONE} if it is {@code null}
+     */
+    private static int idOf(Element element) {
+        return element == null ? NONE : element.getId();
     }
 
     /**
@@ -47,7 +161,7 @@ public class Root extends Node {
         } else if (w < 0) {
             throw new IllegalArgumentException("Weight must be at least 0.");
         }
-        super.addOrIncrementWord(k + TERM, w);
+        super.addOrIncrementWord(k + TERM, w, k);
     }
 
     /**
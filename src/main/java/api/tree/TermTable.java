@@ -0,0 +1,67 @@
+package api.tree;
+
+import java.util.Arrays;
+
+/**
+ * The keywords of a {@link Trie}, by term id. Every leaf of a trie refers to the id of its keyword, so the keyword of
+ * a leaf is found without walking up the trie and concatenating letters.<br>
+ * The letters of all keywords are stored one after the other in a single {@code char} array, so a table costs a few
+ * bytes per keyword instead of a {@link String} object. Keywords are only added, never removed.<br>
+ * <br>
+ * Instances are thread-safe, provided that an id is only passed to another thread after it has been returned by
+ * {@link #add}, as with a leaf that is added to a trie.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class TermTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private char[] letters = new char[INITIAL_CAPACITY * 8];
+    /**
+     * The start of every keyword in {@link #letters}, followed by the end of the last keyword.
+     */
+    private int[] starts = new int[INITIAL_CAPACITY + 1];
+    private volatile int size;
+
+    /**
+     * Adds a keyword to this table.
+     *
+     * @param term the keyword.
+     * @return the term id of {@code term}.
+     */
+    public synchronized int add(String term) {
+        int start = starts[size];
+        if (start + term.length() > letters.length) {
+            letters = Arrays.copyOf(letters, Math.max(start + term.length(), letters.length * 2));
+        }
+        if (size + 2 > starts.length) {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+        }
+        term.getChars(0, term.length(), letters, start);
+        starts[size + 1] = start + term.length();
+        return size++;
+    }
+
+    /**
+     * Gets a keyword of this table.
+     *
+     * @param id the term id of the keyword.
+     * @return the keyword with term id {@code id}.
+     * @throws IllegalArgumentException if there is no keyword with term id {@code id}.
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("No term with id " + id + " in TermTable.get.");
+        }
+        return new String(letters, starts[id], starts[id + 1] - starts[id]);
+    }
+
+    /**
+     * Returns the number of keywords in this table.
+     *
+     * @return the size of this table.
+     */
+    public int size() {
+        return size;
+    }
+}
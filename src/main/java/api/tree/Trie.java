@@ -0,0 +1,159 @@
+package api.tree;
+
+/**
+ * A weighted trie of keywords, navigated with {@code int} handles of its nodes instead of objects.<br>
+ * Every keyword ends in a leaf (with the letter {@link Element#TERM}) that holds the weight of the keyword, and every
+ * other node holds the maximal weight of the leaves below it. The handles of a trie are only valid for that trie.<br>
+ * The edge to a node may carry a label of several letters (see {@link #labelLength}), so that chains of nodes with a
+ * single child can be compressed. A leaf always has the single letter {@link Element#TERM} as label.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public interface Trie {
+    /**
+     * The handle that does not refer to any node.
+     */
+    int NONE = -1;
+
+    /**
+     * Returns the root of this trie.
+     *
+     * @return the handle of the root.
+     */
+    int root();
+
+    /**
+     * Returns the first child of a node. The children of a node are in no particular order.
+     *
+     * @param node the handle of the node.
+     * @return the handle of the first child, or {@link #NONE} if {@code node} has no children.
+     */
+    int firstChild(int node);
+
+    /**
+     * Returns the next child of the parent of a node.
+     *
+     * @param node the handle of the node.
+     * @return the handle of the next sibling, or {@link #NONE} if {@code node} is the last child of its parent.
+     */
+    int nextSibling(int node);
+
+    /**
+     * Returns the child of a node whose label starts with a given letter.
+     *
+     * @param node   the handle of the node.
+     * @param letter the first letter of the label of the child.
+     * @return the handle of the child, or {@link #NONE} if {@code node} has no child with {@code letter}.
+     */
+    int child(int node, char letter);
+
+    /**
+     * Returns the (first) letter of the label of a node other than the root.
+     *
+     * @param node the handle of the node.
+     * @return the letter of {@code node}, or {@link Element#TERM} for a leaf.
+     */
+    char letter(int node);
+
+    /**
+     * Returns the number of letters in the label of the edge to a node other than the root.
+     *
+     * @param node the handle of the node.
+     * @return the length of the label of {@code node}, at least 1.
+     */
+    default int labelLength(int node) {
+        return 1;
+    }
+
+    /**
+     * Returns a letter of the label of the edge to a node other than the root.
+     *
+     * @param node  the handle of the node.
+     * @param index the index of the letter in the label, less than {@link #labelLength}.
+     * @return the letter at {@code index} in the label of {@code node}.
+     */
+    default char labelAt(int node, int index) {
+        return letter(node);
+    }
+
+    /**
+     * Returns the weight of a node: the weight of the keyword for a leaf, or the maximal weight of the leaves below
+     * it for any other node.
+     *
+     * @param node the handle of the node.
+     * @return the weight of {@code node}.
+     */
+    int weight(int node);
+
+    /**
+     * Indicates whether a node is a leaf, at the end of a keyword.
+     *
+     * @param node the handle of the node.
+     * @return {@code true} if {@code node} is a leaf; otherwise {@code false}.
+     */
+    boolean isLeaf(int node);
+
+    /**
+     * Returns the letters on the path from the root to a node, without {@link Element#TERM}.<br>
+     * The keyword of a leaf is looked up by its {@link #termId term id}; the prefix of any other node is built from the
+     * labels on its path.
+     *
+     * @param node the handle of the node.
+     * @return the keyword of a leaf, or the prefix of any other node.
+     */
+    String word(int node);
+
+    /**
+     * Returns the term id of the keyword of a leaf. Every keyword of this trie has its own term id, which is kept
+     * when other keywords are added.
+     *
+     * @param leaf the handle of the leaf.
+     * @return the term id of the keyword of {@code leaf}.
+     */
+    int termId(int leaf);
+
+    /**
+     * Returns a keyword of this trie by its term id, without walking the trie.
+     *
+     * @param termId the term id of the keyword, see {@link #termId}.
+     * @return the keyword with {@code termId}.
+     * @throws IllegalArgumentException if there is no keyword with {@code termId}.
+     */
+    String term(int termId);
+
+    /**
+     * Adds a keyword to this trie, or adds to its weight when it is already present.
+     *
+     * @param k the keyword, may not contain {@link Element#TERM}.
+     * @param w the weight
+     * @throws IllegalArgumentException when {@code k} contains the reserved termination character {@link Element#TERM}
+     * @throws IllegalArgumentException when {@code w < 0}.
+     */
+    void addOrIncrementWord(String k, int w);
+
+    /**
+     * Searches for the node corresponding to a prefix.
+     *
+     * @param p the prefix to search for.
+     * @return the handle of the highest node whose {@link #word} starts with {@code p}, so every keyword below it
+     * starts with {@code p}; or {@link #NONE} if no keyword starts with {@code p}.
+     */
+    default int searchPrefix(String p) {
+        int node = root();
+        int i = 0;
+        while (i < p.length()) {
+            node = child(node, p.charAt(i));
+            if (node == NONE) {
+                return NONE;
+            }
+            int length = labelLength(node);
+            for (int j = 1; j < length && i + j < p.length(); j++) {
+                if (labelAt(node, j) != p.charAt(i + j)) {
+                    return NONE;
+                }
+            }
+            i += length;
+        }
+        return node;
+    }
+}
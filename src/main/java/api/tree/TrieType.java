@@ -0,0 +1,30 @@
+package api.tree;
+
+/**
+ * A simple enumerator of the implementations of {@link Trie}.<br>
+ * {@link #NODES} is a {@link Root} with an object per letter, that can be searched while keywords are added.
+ * {@link #DOUBLE_ARRAY} is a {@link DoubleArrayTrie}, which needs far less memory, but can not be searched while a
+ * keyword is added. {@link #RADIX} is a {@link RadixTrie}, which also compresses chains of nodes with a single child,
+ * for long keywords that share few prefixes; it can not be searched while a keyword is added either.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public enum TrieType {
+    NODES, DOUBLE_ARRAY, RADIX;
+
+    /**
+     * Creates an empty trie of this type.
+     *
+     * @return a new trie.
+     */
+    public Trie create() {
+        switch (this) {
+            case NODES:
+                return new Root();
+            case DOUBLE_ARRAY:
+                return new DoubleArrayTrie();
+            default:
+                return new RadixTrie();
+        }
+    }
+}
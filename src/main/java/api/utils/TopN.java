@@ -0,0 +1,145 @@
+package api.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A thread-safe collection that only keeps the {@code n} items with the highest score that are offered to it.<br>
+ * Internally this is a min-heap on score, so offering an item takes O(log n) time.
+ *
+ * @param <T> the class of the items
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class TopN<T> {
+    private final int n;
+    private final Object[] items;
+    private final double[] scores;
+    private int size;
+    /**
+     * The lowest score in this collection once it is full, so that hopeless offers can be rejected without locking.
+     */
+    private volatile double threshold = Double.NEGATIVE_INFINITY;
+    private volatile boolean full;
+
+    /**
+     * Creates an empty collection.
+     *
+     * @param n the maximum amount of items to keep.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    public TopN(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Tried to make a TopN with a negative size.");
+        }
+        this.n = n;
+        items = new Object[n];
+        scores = new double[n];
+        full = n == 0;
+    }
+
+    /**
+     * Offers an item to this collection. The item is kept if this collection is not full yet,
+     * or if its score is higher than the lowest score in this collection (which is then removed).
+     *
+     * @param item  the item to offer.
+     * @param score the score of {@code item}.
+     * @return {@code true} if the item was kept; otherwise {@code false}.
+     */
+    public boolean offer(T item, double score) {
+        if (n == 0 || (full && Double.compare(score, threshold) <= 0)) {
+            return false;
+        }
+        synchronized (this) {
+            if (size < n) {
+                items[size] = item;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (Double.compare(score, scores[0]) > 0) {
+                items[0] = item;
+                scores[0] = score;
+                siftDown(0);
+            } else {
+                return false;
+            }
+            if (size == n) {
+                threshold = scores[0];
+                full = true;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Indicates whether this collection contains {@code n} items.
+     *
+     * @return {@code true} if this collection is full; otherwise {@code false}.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * Returns the lowest score an item must beat to be kept.
+     *
+     * @return the lowest score in this collection if it is full; otherwise {@link Double#NEGATIVE_INFINITY}.
+     */
+    public double threshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the items in this collection.
+     *
+     * @return A list of the items in this collection, sorted from highest to lowest score.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> toSortedList() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> Double.compare(scores[i2], scores[i1]));
+        List<T> result = new ArrayList<>(size);
+        for (Integer i : order) {
+            result.add((T) items[i]);
+        }
+        return result;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (Double.compare(scores[i], scores[parent]) >= 0) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (Double.compare(scores[child], scores[smallest]) < 0) {
+                    smallest = child;
+                }
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Object item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -87,9 +87,13 @@ public class GUI {
 
         JRadioButton BK = new JRadioButton("BK Tree");
         JRadioButton LA = new JRadioButton("Automata");
+        JRadioButton DA = new JRadioButton("Damerau");
+        JRadioButton CB = new JRadioButton("Compact BK Tree");
         ButtonGroup group = new ButtonGroup();
         group.add(BK);
         group.add(LA);
+        group.add(DA);
+        group.add(CB);
         BK.setSelected(true);
         JPanel radiopane = new JPanel();
         c = new GridBagConstraints();
@@ -101,6 +105,8 @@ public class GUI {
         radiopane.add(new JLabel("Select DYM method"));
         radiopane.add(BK);
         radiopane.add(LA);
+        radiopane.add(DA);
+        radiopane.add(CB);
 
         terminane.setLayout(new GridBagLayout());
 
@@ -146,6 +152,10 @@ public class GUI {
 
         LA.addActionListener(e -> CT.setDYMMethod(DYM.LEVENSHTEIN));
 
+        DA.addActionListener(e -> CT.setDYMMethod(DYM.DAMERAU));
+
+        CB.addActionListener(e -> CT.setDYMMethod(DYM.COMPACT_BKTREE));
+
         searchbar.addActionListener(e -> {
             if (e.getID() == 1001) {
                 search(searchbar.getText());
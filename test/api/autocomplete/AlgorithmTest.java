@@ -1,16 +1,26 @@
 package api.autocomplete;
 
+import api.didyoumean.levenshteinautomata.LevenshteinAutomataFactory;
 import api.tree.Element;
+import api.tree.RadixTrie;
 import api.tree.Root;
+import api.tree.Trie;
+import api.tree.TrieType;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static api.autocomplete.Algorithm.*;
+import static api.didyoumean.bktree.BKTree.calculateDistance;
 import static matchers.CollectionMatchers.sizeIs;
 import static matchers.TreeMatchers.wordIs;
 import static org.hamcrest.CoreMatchers.*;
@@ -105,4 +115,123 @@ public class AlgorithmTest {
         assertThat(getTopKeywords(root1, 3, "a"), equalTo(list.subList(1, 4)));
         assertThat(getTopKeywords(root1, 7, "a"), equalTo(list.subList(1, 5)));
     }
+
+    @Test
+    public void testGetTopKeywordsLiteralPrefix() throws Exception {
+        for (TrieType type : TrieType.values()) {
+            Trie trie = type.create();
+            trie.addOrIncrementWord("12v+ motor", 5);
+            trie.addOrIncrementWord("12v motor", 10);
+            trie.addOrIncrementWord("12vv", 7);
+            trie.addOrIncrementWord("a.c", 3);
+            trie.addOrIncrementWord("abc", 9);
+            trie.addOrIncrementWord("(ac", 1);
+            assertThat(type.toString(), getTopKeywords(trie, 5, "12v+"), equalTo(Arrays.asList("12v+ motor")));
+            assertThat(type.toString(), getTopKeywords(trie, 5, "12v"),
+                    equalTo(Arrays.asList("12v motor", "12vv", "12v+ motor")));
+            assertThat(type.toString(), getTopKeywords(trie, 5, "a."), equalTo(Arrays.asList("a.c")));
+            assertThat(type.toString(), getTopKeywords(trie, 5, "(a"), equalTo(Arrays.asList("(ac")));
+            assertThat(type.toString(), getTopKeywords(trie, 5, "["), sizeIs(0));
+            assertThat(type.toString(), getTopKeywords(trie, 0, ""), sizeIs(0));
+        }
+    }
+
+    @Test
+    public void testGetTopKeywordsRandom() throws Exception {
+        Random random = new Random(25);
+        for (TrieType type : TrieType.values()) {
+            Trie trie = type.create();
+            Map<String, Integer> words = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                String word = randomWord(random, 1 + random.nextInt(8));
+                int weight = random.nextInt(1000);
+                trie.addOrIncrementWord(word, weight);
+                words.merge(word, weight, Integer::sum);
+            }
+            for (int i = 0; i < 100; i++) {
+                String prefix = randomWord(random, random.nextInt(4));
+                int c = random.nextInt(20);
+                List<Integer> expected = words.keySet().stream().filter(word -> word.startsWith(prefix))
+                        .map(words::get).sorted(Comparator.reverseOrder()).limit(c).collect(Collectors.toList());
+                List<String> actual = getTopKeywords(trie, c, prefix);
+                assertThat(type + " " + prefix, actual.stream().allMatch(word -> word.startsWith(prefix)), is(true));
+                // keywords with the same weight may come in any order
+                assertThat(type + " " + prefix, actual.stream().map(words::get).collect(Collectors.toList()),
+                        equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testGetFuzzyTopKeywords() throws Exception {
+        List<String> list = Arrays.asList("strawberry", "apple pie", "apple juice", "applesauce", "apple");
+        LevenshteinAutomataFactory laf = LevenshteinAutomataFactory.getInstance(2);
+
+        assertThat(getFuzzyTopKeywords(root1, 5, "", laf, 1), equalTo(list));
+        assertThat(getFuzzyTopKeywords(root1, 9, "apple", laf, 1), equalTo(list.subList(1, 5)));
+        assertThat(getFuzzyTopKeywords(root1, 9, "aple", laf, 1), equalTo(list.subList(1, 5)));
+        assertThat(getFuzzyTopKeywords(root1, 9, "aple", laf, 0), sizeIs(0));
+        assertThat(getFuzzyTopKeywords(root1, 2, "strawbery", laf, 1), equalTo(list.subList(0, 1)));
+        assertThat("Closer prefixes come first", getFuzzyTopKeywords(root1, 2, "applesa", laf, 2),
+                equalTo(Arrays.asList("applesauce", "apple pie")));
+    }
+
+    @Test
+    public void testGetFuzzyTopKeywordsRandom() throws Exception {
+        LevenshteinAutomataFactory laf = LevenshteinAutomataFactory.getInstance(2);
+        Random random = new Random(42);
+        Root root = new Root();
+        RadixTrie radix = new RadixTrie();
+        Map<String, Integer> words = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String word = randomWord(random, 1 + random.nextInt(7));
+            int weight = 1 + random.nextInt(1000);
+            root.addOrIncrementWord(word, weight);
+            radix.addOrIncrementWord(word, weight);
+            words.merge(word, weight, Integer::sum);
+        }
+        for (int i = 0; i < 50; i++) {
+            String prefix = randomWord(random, random.nextInt(5));
+            Comparator<String> order = Comparator.<String>comparingInt(word -> prefixDistance(prefix, word))
+                    .thenComparing(words::get, Comparator.reverseOrder());
+            List<String> expected = words.keySet().stream().filter(word -> prefixDistance(prefix, word) <= 2)
+                    .sorted(order).limit(5).collect(Collectors.toList());
+            List<String> actual = getFuzzyTopKeywords(root, 5, prefix, laf, 2);
+            assertThat(prefix, actual.stream().map(word -> prefixDistance(prefix, word)).collect(Collectors.toList()),
+                    equalTo(expected.stream().map(word -> prefixDistance(prefix, word)).collect(Collectors.toList())));
+            assertThat(prefix, actual.stream().map(words::get).collect(Collectors.toList()),
+                    equalTo(expected.stream().map(words::get).collect(Collectors.toList())));
+            List<String> actualRadix = getFuzzyTopKeywords(radix, 5, prefix, laf, 2);
+            assertThat(prefix, actualRadix.stream().map(words::get).collect(Collectors.toList()),
+                    equalTo(expected.stream().map(words::get).collect(Collectors.toList())));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetFuzzyTopKeywordsIllegalArg() throws Exception {
+        getFuzzyTopKeywords(root1, 5, "apple", LevenshteinAutomataFactory.getInstance(1), 2);
+    }
+
+    /**
+     * Calculates the lowest Levenshtein distance between a prefix and any prefix of a word.
+     *
+     * @param prefix The prefix.
+     * @param word   The word.
+     * @return The lowest LD between {@code prefix} and a prefix of {@code word}.
+     */
+    private int prefixDistance(String prefix, String word) {
+        int result = Integer.MAX_VALUE;
+        for (int i = 0; i <= word.length(); i++) {
+            result = Math.min(result, calculateDistance(prefix, word.substring(0, i)));
+        }
+        return result;
+    }
+
+    private String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
 }
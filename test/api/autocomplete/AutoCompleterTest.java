@@ -1,10 +1,17 @@
 package api.autocomplete;
 
+import api.tree.TrieType;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.anyOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -33,6 +40,117 @@ public class AutoCompleterTest {
         assertThat(AC.getTopN(10, "12v motor"), is(new String[]{"12v motor", "12v motor groen"}));
         AC.learn("12v motor blauw", 1);
         assertThat(AC.getTopN(10, "12v motor"), is(new String[]{"12v motor", "12v motor groen", "12v motor blauw"}));
+
+        AC.setFuzziness(1);
+        assertThat(AC.getFuzziness(), is(1));
+        assertThat(AC.getTopN(10, "acu"), is(new String[]{"accu", "accuboor", "ac motor"}));
+        assertThat(AC.getTopN(10, "12v motr"), is(new String[]{"12v motor", "12v motor groen", "12v motor blauw"}));
+        AC.setFuzziness(0);
+        assertThat(AC.getTopN(10, "acu"), is(new String[]{}));
+    }
+
+    @org.junit.Test
+    public void testGetTopNTrieTypes() throws Exception {
+        for (TrieType type : TrieType.values()) {
+            AutoCompleter AC = new AutoCompleter(this::generateData3, type);
+            assertThat(AC.getTopN(10, ""),
+                    is(new String[]{"accu", "accuboor", "ac motor", "12v motor", "12v motor groen"}));
+            assertThat(AC.getTopN(10, "acc"), is(new String[]{"accu", "accuboor"}));
+            assertThat(AC.getTopN(10, "12v m"), is(new String[]{"12v motor", "12v motor groen"}));
+            AC.learn("12v motor blauw", 1000);
+            assertThat(AC.getTopN(10, "12v motor "), is(new String[]{"12v motor blauw", "12v motor groen"}));
+            AC.setFuzziness(1);
+            assertThat(AC.getTopN(2, "12v mtor"), is(new String[]{"12v motor blauw", "12v motor"}));
+        }
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testSetFuzzinessIllegalArg() throws Exception {
+        new AutoCompleter(() -> null).setFuzziness(AutoCompleter.MAX_FUZZINESS + 1);
+    }
+
+    @org.junit.Test
+    public void testCompletionCache() throws Exception {
+        AutoCompleter AC = new AutoCompleter(this::generateData3);
+        AC.setCompletionCacheSizes(3, 2, 0, 2);
+        assertThat(AC.getCompletionCacheSizes(), is(new int[]{3, 2, 0, 2}));
+        assertThat(AC.getTopN(2, ""), is(new String[]{"accu", "accuboor"}));
+        assertThat(AC.getTopN(10, ""),
+                is(new String[]{"accu", "accuboor", "ac motor", "12v motor", "12v motor groen"}));
+        assertThat(AC.getTopN(10, "a"), is(new String[]{"accu", "accuboor", "ac motor"}));
+        assertThat(AC.getTopN(10, "12v"), is(new String[]{"12v motor", "12v motor groen"}));
+        assertThat(AC.getTopN(10, "x"), is(new String[]{}));
+        assertThat(AC.getTopN(10, "ACC"), is(new String[]{"accu", "accuboor"}));
+        AC.learn("12v motor groen", 300);
+        AC.learn("12v lamp", 50);
+        assertThat(AC.getTopN(1, ""), is(new String[]{"12v motor groen"}));
+        assertThat(AC.getTopN(2, "1"), is(new String[]{"12v motor groen", "12v motor"}));
+        assertThat(AC.getTopN(3, "12v"), is(new String[]{"12v motor groen", "12v motor", "12v lamp"}));
+        AC.resetTree();
+        assertThat(AC.getTopN(1, "1"), is(new String[]{"12v motor"}));
+        AC.setCompletionCacheSizes();
+        assertThat(AC.getTopN(1, ""), is(new String[]{"accu"}));
+
+        CompletionCache cache = new CompletionCache(TrieType.RADIX.create(), 1, 1);
+        assertThat(cache.get(1, ""), is(Collections.<String>emptyList()));
+        assertThat(cache.get(1, "ab"), is(nullValue()));
+        assertThat(cache.size(), is(0));
+    }
+
+    @org.junit.Test
+    public void testCompletionCacheRandom() throws Exception {
+        Random random = new Random(7);
+        Map<String, Integer> data = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(4)));
+            }
+            data.put(word.toString(), random.nextInt(1000));
+        }
+        for (TrieType type : TrieType.values()) {
+            AutoCompleter cached = new AutoCompleter(() -> data, type);
+            AutoCompleter uncached = new AutoCompleter(() -> data, type);
+            cached.setCompletionCacheSizes(10, 5, 5, 3);
+            Map<String, Integer> weights = new HashMap<>(data);
+            List<String> keywords = new ArrayList<>(data.keySet());
+            for (int i = 0; i < 500; i++) {
+                String word = keywords.get(random.nextInt(keywords.size()));
+                if (i % 2 == 0) {
+                    word = "abcd".substring(random.nextInt(4)) + word;
+                }
+                int weight = random.nextInt(2000);
+                cached.learn(word, weight);
+                uncached.learn(word, weight);
+                weights.merge(word, weight, Integer::sum);
+                String prefix = word.substring(0, random.nextInt(Math.min(word.length(), 4) + 1));
+                int n = 1 + random.nextInt(12);
+                // keywords with the same weight may come in any order
+                assertThat(type + " " + prefix, weightsOf(cached.getTopN(n, prefix), weights),
+                        is(weightsOf(uncached.getTopN(n, prefix), weights)));
+            }
+        }
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testSetCompletionCacheSizesIllegalArg() throws Exception {
+        new AutoCompleter(() -> null).setCompletionCacheSizes(5, -1);
+    }
+
+    /**
+     * Looks up the weights of a list of keywords.
+     *
+     * @param keywords The keywords.
+     * @param weights  The weight of every keyword.
+     * @return The weights of {@code keywords}, in the same order.
+     */
+    private List<Integer> weightsOf(String[] keywords, Map<String, Integer> weights) {
+        List<Integer> result = new ArrayList<>();
+        for (String keyword : keywords) {
+            result.add(weights.get(keyword));
+        }
+        return result;
     }
 
     private Map<String, Integer> generateData1() { // standard
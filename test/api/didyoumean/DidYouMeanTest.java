@@ -0,0 +1,82 @@
+package api.didyoumean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Tests the BK-trees that DidYouMean keeps for its methods.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class DidYouMeanTest {
+    private static final List<String> TERMS = Arrays.asList("setup5", "setup", "setup134", "stuep", "learned1");
+
+    private Map<String, Integer> data;
+
+    @Before
+    public void setup() {
+        data = new HashMap<>();
+        data.put("setup", 10);
+        data.put("setup1", 30);
+        data.put("setup12", 5);
+        data.put("setup3333", 20);
+        data.put("other", 15);
+    }
+
+    @Test
+    public void testOnlyMethodTreeIsBuilt() {
+        DidYouMean bk = new DidYouMean(() -> data, DYM.BKTREE, 6);
+        assertThat(bk.getTree().size(), is(data.size()));
+        assertThat(bk.getCompactTree(), nullValue());
+
+        DidYouMean compact = new DidYouMean(() -> data, DYM.COMPACT_BKTREE, 6);
+        assertThat(compact.getTree(), nullValue());
+        assertThat(compact.getCompactTree().size(), is(data.size()));
+
+        DidYouMean automata = new DidYouMean(() -> data, DYM.LEVENSHTEIN, 6);
+        assertThat(automata.getTree(), nullValue());
+        assertThat(automata.getCompactTree(), nullValue());
+    }
+
+    @Test
+    public void testLearnOnlyUpdatesMethodTree() {
+        DidYouMean compact = new DidYouMean(() -> data, DYM.COMPACT_BKTREE, 6);
+        compact.learn("learned", 100);
+        assertThat(compact.getTree(), nullValue());
+        assertThat(compact.getCompactTree().size(), is(data.size() + 1));
+        assertThat(compact.getDYM("learned1"), equalTo("learned"));
+    }
+
+    @Test
+    public void testSetMethodKeepsLearnedWords() {
+        DidYouMean dym = new DidYouMean(() -> data, DYM.BKTREE, 6);
+        dym.learn("learned", 100);
+        dym.learn("setup12", 50);
+
+        dym.setMethod(DYM.COMPACT_BKTREE);
+        assertThat(dym.getTree(), nullValue());
+        assertThat(dym.getCompactTree(), notNullValue());
+        List<List<String>> compactResults = dym.getDYM_Batch(TERMS, 3);
+
+        dym.setMethod(DYM.DAMERAU);
+        assertThat(dym.getTree(), nullValue());
+        assertThat(dym.getCompactTree(), nullValue());
+
+        dym.setMethod(DYM.BKTREE);
+        assertThat(dym.getCompactTree(), nullValue());
+        assertThat(dym.getTree().size(), is(data.size() + 1));
+        assertThat(dym.getDYM_Batch(TERMS, 3), equalTo(compactResults));
+        assertThat(dym.getDYM("setup13"), equalTo("setup12"));
+    }
+}
@@ -1,11 +1,17 @@
 package api.didyoumean.bktree;
 
+import api.didyoumean.BitParallelLevenshtein;
+import api.didyoumean.DidYouMean;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import static api.didyoumean.bktree.BKTree.calculateDistance;
 import static matchers.CollectionMatchers.sizeIs;
@@ -83,6 +89,9 @@ public class BKTreeTest {
         node.addChild(child3);
         assertThat("Setup3 got successfully added to a node which already has an edge with distance 1",
                 node.getChildren().get(1).getChildren().containsValue(child3));
+        assertThat(node.getChild(1), is(child1));
+        assertThat(node.getChild(2), is(child2));
+        assertThat("No child with distance 3", node.getChild(3) == null);
     }
 
     // ---- searchTree() ----
@@ -133,10 +142,62 @@ public class BKTreeTest {
         tree.buildTree(data);
 
         assertThat(verifyTree(tree.getRoot()), equalTo(data));
+        assertThat(tree.getRoot().getMaxScore(), is(100));
         tree.addOrIncrement("setup3", 75);
         assertThat(tree.getRoot().getWordInChildren("setup3").getScore(), is(175));
+        assertThat("The maximal score is propagated to the root", tree.getRoot().getMaxScore(), is(175));
         tree.addOrIncrement("newWord", 33);
         assertThat(tree.getRoot().getWordInChildren("newWord").getScore(), is(33));
+        assertThat(tree.getNode("newWord"), is(tree.getRoot().getWordInChildren("newWord")));
+        assertThat(tree.getRoot().size(), is(data.size() + 1));
+
+        String rootWord = tree.getRoot().getName();
+        int rootScore = tree.getRoot().getScore();
+        tree.addOrIncrement(rootWord, 5);
+        assertThat("The word of the root should be incremented, not added again",
+                tree.getRoot().getScore(), is(rootScore + 5));
+        assertThat(tree.getRoot().size(), is(data.size() + 1));
+    }
+
+    @Test
+    public void testAddOrIncrementEmptyTree() {
+        tree.addOrIncrement("first", 3);
+        tree.addOrIncrement("second", 4);
+        assertThat(tree.getRoot().getName(), equalTo("first"));
+        assertThat(tree.getNode("second").getScore(), is(4));
+        assertThat(tree.size(), is(2));
+        assertThat(tree.getDYM("secnd", 6), equalTo("second"));
+    }
+
+    @Test
+    public void testIndependentTrees() {
+        BKTree other = new BKTree();
+        tree.buildTree(testData());
+        other.addOrIncrement("other", 1);
+
+        assertThat(tree.size(), is(testData().size()));
+        assertThat(other.size(), is(1));
+        assertThat(tree.getDYM("setup5", 6), equalTo("setup1"));
+        assertThat(other.getDYM("setup5", 6), equalTo(""));
+        assertThat(new BKTree().getDYM("setup5", 6), equalTo(""));
+    }
+
+    @Test
+    public void testBuildTreeLarge() {
+        // big enough to be built by several tasks
+        Map<String, Integer> data = randomData(5 * BuildTask.SEQUENTIAL_THRESHOLD);
+        tree.buildTree(data);
+
+        assertThat(verifyTree(tree.getRoot()), equalTo(data));
+        assertThat(tree.getRoot().size(), is(data.size()));
+        assertThat(tree.size(), is(data.size()));
+    }
+
+    @Test
+    public void testBuildTreeEmpty() {
+        tree.buildTree(new HashMap<>());
+        assertThat(tree.size(), is(0));
+        assertThat(tree.getDYM("setup", 6), equalTo(""));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -183,6 +244,57 @@ public class BKTreeTest {
         assertThat(calculateDistance("abcfood", "food"), is(3));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testCalculateBoundedLDIllegalArgument() {
+        calculateDistance("food", "fxod", -1);
+    }
+
+    @Test
+    public void testCalculateBoundedLievenshteinDistance() {
+        assertThat(calculateDistance("", "four", 4), is(4));
+        assertThat("Length difference alone exceeds the bound",
+                calculateDistance("", "four", 3), is(4));
+        assertThat(calculateDistance("food", "fxod", 0), is(1));
+        assertThat(calculateDistance("fxd", "food", 2), is(2));
+        assertThat(calculateDistance("abcfood", "food", 3), is(3));
+        assertThat("Distances above the bound are reported as bound + 1",
+                calculateDistance("abcdefgh", "hgfedcba", 3), is(4));
+        assertThat(calculateDistance("kitten", "sitting", 10), is(calculateDistance("kitten", "sitting")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBitParallelLDIllegalArgument() {
+        new BitParallelLevenshtein("food").distance(null);
+    }
+
+    @Test
+    public void testBitParallelLievenshteinDistance() {
+        assertThat(new BitParallelLevenshtein("").distance("four"), is(4));
+        assertThat(new BitParallelLevenshtein("food").distance("fxod"), is(1));
+        assertThat(new BitParallelLevenshtein("fxd").distance("food"), is(2));
+        assertThat(new BitParallelLevenshtein("abcfood").distance("food"), is(3));
+        assertThat("Distances above the bound are reported as bound + 1",
+                new BitParallelLevenshtein("abcdefgh").distance("hgfedcba", 3), is(4));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            // patterns longer than 64 characters span several blocks
+            String word1 = randomWord(random, random.nextInt(150));
+            String word2 = randomWord(random, random.nextInt(150));
+            BitParallelLevenshtein pattern = new BitParallelLevenshtein(word1);
+            assertThat(pattern.distance(word2), is(calculateDistance(word1, word2)));
+            assertThat(pattern.distance(word2, 5), is(calculateDistance(word1, word2, 5)));
+        }
+    }
+
+    private String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append("abc\u00e9".charAt(random.nextInt(4)));
+        }
+        return word.toString();
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testGetDYMIllegalArg() {
         tree.getDYM(null, 6);
@@ -211,4 +323,149 @@ public class BKTreeTest {
         assertThat("Choice between different Nodes with the same LD",
                 tree.getDYM("setup134", 6), equalTo("setup3333"));
     }
+
+    @Test
+    public void testGetDYM_N() {
+        tree.buildTree(testData());
+
+        assertThat(tree.getDYM_N("setup5", 3, 6), equalTo(Arrays.asList("setup1", "setup", "setup12")));
+        assertThat(tree.getDYM_N("setup5", 0, 6), sizeIs(0));
+        assertThat(tree.getDYM_N("not within 3 LD", 5, 6), sizeIs(0));
+    }
+
+    @Test
+    public void testGetDYM_NLargeTree() {
+        // big enough to be searched by several tasks
+        Map<String, Integer> data = randomData(5 * SearchTask.SEQUENTIAL_THRESHOLD);
+        tree.buildTree(data);
+
+        String term = "abcdef";
+        List<String> expected = data.entrySet().stream()
+                .filter(e -> calculateDistance(term, e.getKey()) <= DidYouMean.MAX_DISTANCE)
+                .sorted((e1, e2) -> Double.compare(
+                        e2.getValue() / Math.pow(calculateDistance(term, e2.getKey()), 2),
+                        e1.getValue() / Math.pow(calculateDistance(term, e1.getKey()), 2)))
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        assertThat(tree.getDYM_N(term, 10, 2), equalTo(expected));
+        assertThat(tree.getDYM(term, 2), equalTo(expected.get(0)));
+        assertThat("Increasing the radius up to the maximum finds the same suggestions",
+                tree.getDYM_N(term, 10, 2, DidYouMean.MAX_DISTANCE), equalTo(expected));
+    }
+
+    @Test
+    public void testGetDYM_NAdaptive() {
+        tree.buildTree(testData());
+
+        assertThat(tree.getDYM_N("setup5", 3, 6, 1), equalTo(Arrays.asList("setup1", "setup")));
+        assertThat(tree.getDYM_N("setup5", 3, 6, 0), sizeIs(0));
+        assertThat(tree.getDYM_N("setup", 1, 6, 0), equalTo(Arrays.asList("setup")));
+        assertThat(new BKTree().getDYM_N("setup", 1, 6, 3), sizeIs(0));
+        assertThat(DidYouMean.getMaxDistance("abc"), is(1));
+        assertThat(DidYouMean.getMaxDistance("abcdef"), is(2));
+        assertThat(DidYouMean.getMaxDistance("abcdefghij"), is(DidYouMean.MAX_DISTANCE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetDYM_NAdaptiveIllegalArg() {
+        tree.getDYM_N("setup", 1, 6, -1);
+    }
+
+    /**
+     * Creates random words with distinct scores.
+     *
+     * @param size the amount of words
+     * @return a map of {@code size} random words and their scores
+     */
+    private Map<String, Integer> randomData(int size) {
+        Map<String, Integer> data = new HashMap<>();
+        Random random = new Random(42);
+        while (data.size() < size) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < 4 + random.nextInt(4); i++) {
+                word.append((char) ('a' + random.nextInt(6)));
+            }
+            data.putIfAbsent(word.toString(), data.size() + 1);
+        }
+        return data;
+    }
+
+    // ---- CompactBKTree.java tests ----
+
+    @Test
+    public void testCompactGetDYM() {
+        CompactBKTree compact = new CompactBKTree();
+        assertThat(compact.getDYM("setup5", 6), equalTo(""));
+        compact.buildTree(testData());
+
+        assertThat(compact.size(), is(testData().size()));
+        assertThat(compact.getDYM("setup5", 6), equalTo("setup1"));
+        assertThat(compact.getDYM("setup", 6), equalTo("setup"));
+        assertThat(compact.getDYM("not within 3 LD", 6), equalTo(""));
+        assertThat(compact.getDYM("setup134", 6), equalTo("setup3333"));
+        assertThat(compact.getDYM_N("setup5", 3, 6), equalTo(Arrays.asList("setup1", "setup", "setup12")));
+    }
+
+    @Test
+    public void testCompactAddOrIncrement() {
+        CompactBKTree compact = new CompactBKTree();
+        compact.addOrIncrement("setup", 10);
+        compact.addOrIncrement("setup1", 30);
+        compact.addOrIncrement("setup", 25);
+        assertThat(compact.size(), is(2));
+        assertThat("setup has a score of 35 now", compact.getDYM("setup2", 6), equalTo("setup"));
+    }
+
+    @Test
+    public void testCompactSameAsBKTree() {
+        Map<String, Integer> data = randomData(3000);
+        CompactBKTree compact = new CompactBKTree();
+        compact.buildTree(data);
+        tree.buildTree(data);
+
+        for (String term : Arrays.asList("abcdef", "fedcba", "aaaa", "bcd", "abababab")) {
+            assertThat(compact.getDYM_N(term, 10, 2), equalTo(tree.getDYM_N(term, 10, 2)));
+        }
+    }
+
+    @Test
+    public void testCompactAdaptiveSameAsBKTree() {
+        Map<String, Integer> data = randomData(5 * BuildTask.SEQUENTIAL_THRESHOLD);
+        CompactBKTree compact = new CompactBKTree();
+        compact.buildTree(data);
+        tree.buildTree(data);
+
+        for (String term : Arrays.asList("abcdef", "fedcba", "aaaa", "bcd", "abababab")) {
+            for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+                assertThat(compact.getDYM_N(term, 10, 2, maxDistance),
+                        equalTo(tree.getDYM_N(term, 10, 2, maxDistance)));
+            }
+        }
+    }
+
+    @Test
+    public void testCompactLearnSameAsBKTree() {
+        Map<String, Integer> data = randomData(3000);
+        CompactBKTree compact = new CompactBKTree();
+        compact.buildTree(data);
+        tree.buildTree(data);
+        Random random = new Random(7);
+        List<String> words = data.keySet().stream().sorted().collect(Collectors.toList());
+        for (int i = 0; i < 200; i++) {
+            String word = random.nextInt(4) == 0 ? "new" + i : words.get(random.nextInt(words.size()));
+            compact.addOrIncrement(word, 1000 + i);
+            tree.addOrIncrement(word, 1000 + i);
+        }
+
+        for (String term : Arrays.asList("abcdef", "fedcba", "aaaa", "bcd", "abababab", "new1")) {
+            assertThat(compact.getDYM_N(term, 10, 2), equalTo(tree.getDYM_N(term, 10, 2)));
+            assertThat(compact.getDYM_N(term, 10, 2, 1), equalTo(tree.getDYM_N(term, 10, 2, 1)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompactNegativeMaxDistance() {
+        new CompactBKTree().getDYM_N("setup", 10, 2, -1);
+    }
 }
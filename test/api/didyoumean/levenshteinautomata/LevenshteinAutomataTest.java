@@ -0,0 +1,423 @@
+package api.didyoumean.levenshteinautomata;
+
+import api.tree.DoubleArrayTrie;
+import api.tree.RadixTrie;
+import api.tree.Root;
+import api.tree.Trie;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import static api.didyoumean.bktree.BKTree.calculateDistance;
+import static matchers.CollectionMatchers.sizeIs;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * The Class that tests everything in the levenshteinautomata package.
+ *
+ * @author Tim Blok, Frans van Dijk, Yannick Mijsters, Ramon Onis, Tim Sonderen; University of Twente
+ */
+public class LevenshteinAutomataTest {
+
+    private static LevenshteinAutomataFactory laf;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setup() {
+        laf = LevenshteinAutomataFactory.getInstance(2);
+    }
+
+    // ---- LevenshteinAutomataFactory.java tests ----
+
+    @Test
+    public void testStatesAgreeWithLD() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String word = randomWord(random, random.nextInt(8));
+            String input = randomWord(random, random.nextInt(8));
+            int distance = calculateDistance(word, input);
+            CharacteristicVectors vectors = new CharacteristicVectors(word);
+            State state = laf.getInit();
+            for (int j = 0; j < input.length() && state != null; j++) {
+                assertThat("No state needs more edits than the LD", state.getMinEdits() <= distance);
+                State next = state.outState(input.charAt(j), word);
+                assertThat(String.valueOf(state.outState(input.charAt(j), vectors)), equalTo(String.valueOf(next)));
+                state = next;
+            }
+            boolean accepting = state != null && state.isAcceptingState(word.length());
+            assertThat(word + " / " + input, accepting, is(distance <= laf.getMaxDistance()));
+            if (accepting) {
+                assertThat(word + " / " + input, state.getDistance(word.length()), is(distance));
+            }
+
+            long primitive = laf.getInitState();
+            for (int j = 0; j < input.length() && primitive != LevenshteinAutomataFactory.FAILURE_STATE; j++) {
+                assertThat(laf.getMinEdits(primitive) <= distance, is(true));
+                primitive = laf.step(primitive, input.charAt(j), vectors);
+            }
+            boolean primitiveAccepting = primitive != LevenshteinAutomataFactory.FAILURE_STATE
+                    && laf.isAccepting(primitive, word.length());
+            assertThat(primitiveAccepting, is(accepting));
+            if (accepting) {
+                assertThat(laf.getDistance(primitive, word.length()), is(distance));
+            }
+        }
+    }
+
+    @Test
+    public void testGetInstance() {
+        assertThat(LevenshteinAutomataFactory.getInstance(2), is(laf));
+        assertThat(LevenshteinAutomataFactory.getInstance(1).getMaxDistance(), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetInstanceIllegalArg() {
+        LevenshteinAutomataFactory.getInstance(-1);
+    }
+
+    @Test
+    public void testCachedTables() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        LevenshteinAutomataFactory calculated = new LevenshteinAutomataFactory(2, false, dir);
+        Path file = dir.resolve("levenshtein-2.tables");
+        assertThat("The tables are stored after they are calculated", Files.isRegularFile(file));
+        LevenshteinAutomataFactory loaded = new LevenshteinAutomataFactory(2, false, dir);
+        assertThat(walk(loaded, "setup", "steup1"), equalTo(walk(calculated, "setup", "steup1")));
+        assertThat(walk(loaded, "setup", "abc"), equalTo(walk(calculated, "setup", "abc")));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        LevenshteinAutomataFactory recalculated = new LevenshteinAutomataFactory(2, false, dir);
+        assertThat("An invalid file is calculated again",
+                walk(recalculated, "setup", "steup1"), equalTo(walk(calculated, "setup", "steup1")));
+        assertThat(Files.size(file) > 3, is(true));
+
+        byte[] valid = Files.readAllBytes(file);
+        byte[] corrupted = valid.clone();
+        corrupted[corrupted.length - 1] ^= 1;
+        Files.write(file, corrupted);
+        new LevenshteinAutomataFactory(2, false, dir);
+        assertThat("A file with a wrong checksum is calculated again", Files.readAllBytes(file), equalTo(valid));
+
+        // a transition to a state that does not exist, with a matching checksum
+        ByteBuffer planted = ByteBuffer.wrap(valid.clone());
+        planted.putInt(24, Integer.MAX_VALUE & ~0xff);
+        CRC32 crc = new CRC32();
+        crc.update(planted.array(), 24, valid.length - 24);
+        planted.putInt(20, (int) crc.getValue());
+        Files.write(file, planted.array());
+        LevenshteinAutomataFactory checked = new LevenshteinAutomataFactory(2, false, dir);
+        assertThat("A file with an invalid transition is calculated again",
+                walk(checked, "setup", "steup1"), equalTo(walk(calculated, "setup", "steup1")));
+        assertThat(Files.readAllBytes(file), equalTo(valid));
+    }
+
+    @Test
+    public void testGeneratedTables() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        LevenshteinAutomataFactory.main(new String[]{dir.toString()});
+        for (int n = 1; n <= LevenshteinAutomataFactory.MAX_SHIPPED_DISTANCE; n++) {
+            for (boolean transpositions : new boolean[]{false, true}) {
+                Path file = dir.resolve((transpositions ? "damerau-levenshtein-" : "levenshtein-") + n + ".tables");
+                assertThat(file + " is generated", Files.isRegularFile(file));
+                byte[] generated = Files.readAllBytes(file);
+                LevenshteinAutomataFactory loaded = new LevenshteinAutomataFactory(n, transpositions, dir);
+                LevenshteinAutomataFactory shared = LevenshteinAutomataFactory.getInstance(n, transpositions);
+                assertThat(walk(loaded, "setup", "steup1"), equalTo(walk(shared, "setup", "steup1")));
+                assertThat(walk(loaded, "setup", "sxtup"), equalTo(walk(shared, "setup", "sxtup")));
+                assertThat("A valid file is not stored again", Files.readAllBytes(file), equalTo(generated));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGeneratedTablesIllegalArg() throws IOException {
+        LevenshteinAutomataFactory.main(new String[0]);
+    }
+
+    /**
+     * Describes the states a simulated automaton goes through.
+     *
+     * @param factory the factory of the automaton.
+     * @param word    the word of the automaton.
+     * @param input   the symbols to feed the automaton.
+     * @return the states along with their distances.
+     */
+    private String walk(LevenshteinAutomataFactory factory, String word, String input) {
+        StringBuilder result = new StringBuilder();
+        State state = factory.getInit();
+        for (int i = 0; i < input.length() && state != null; i++) {
+            state = state.outState(input.charAt(i), word);
+            if (state != null) {
+                result.append(state).append(state.getMinEdits()).append(state.isAcceptingState(word.length()));
+            }
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testTranspositions() {
+        LevenshteinAutomataFactory damerau = LevenshteinAutomataFactory.getInstance(2, true);
+        assertThat(damerau.hasTranspositions(), is(true));
+        assertThat(LevenshteinAutomataFactory.getInstance(2), is(laf));
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String word = randomWord(random, random.nextInt(8));
+            String input = randomWord(random, random.nextInt(8));
+            int distance = restrictedDamerauDistance(word, input);
+            State state = damerau.getInit();
+            for (int j = 0; j < input.length() && state != null; j++) {
+                assertThat("No state needs more edits than the distance", state.getMinEdits() <= distance);
+                state = state.outState(input.charAt(j), word);
+            }
+            boolean accepting = state != null && state.isAcceptingState(word.length());
+            assertThat(word + " / " + input, accepting, is(distance <= damerau.getMaxDistance()));
+            if (accepting) {
+                assertThat(word + " / " + input, state.getDistance(word.length()), is(distance));
+            }
+        }
+        Root root = testTree();
+        assertThat("A transposition is a single edit",
+                LevenshteinAutomata.intersectN(root, damerau, "setpu", 3, 6, 1), equalTo(Arrays.asList("setup")));
+        assertThat(LevenshteinAutomata.intersectN(root, laf, "setpu", 3, 6, 1), sizeIs(0));
+    }
+
+    /**
+     * Calculates the distance between two words when a transposition of two adjacent characters counts as a single
+     * edit, and no substring is edited more than once.
+     *
+     * @param word1 The first word.
+     * @param word2 The second word.
+     * @return The restricted Damerau-Levenshtein distance between word1 and word2.
+     */
+    private int restrictedDamerauDistance(String word1, String word2) {
+        int[][] d = new int[word1.length() + 1][word2.length() + 1];
+        for (int i = 0; i <= word1.length(); i++) {
+            for (int j = 0; j <= word2.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                int cost = word1.charAt(i - 1) == word2.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && word1.charAt(i - 1) == word2.charAt(j - 2)
+                        && word1.charAt(i - 2) == word2.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[word1.length()][word2.length()];
+    }
+
+    @Test
+    public void testCharacteristicVectors() {
+        Random random = new Random(42);
+        // words longer than 64 characters span several bitmasks
+        String word = randomWord(random, 150) + "\u00e9";
+        CharacteristicVectors vectors = new CharacteristicVectors(word);
+        for (char c : new char[]{'a', 'b', 'c', 'z', '\u00e9'}) {
+            for (int offset = 0; offset <= word.length(); offset++) {
+                int length = Math.min(word.length() - offset, 7);
+                int expected = 0;
+                for (int k = 0; k < length; k++) {
+                    expected |= word.charAt(offset + k) == c ? 1 << k : 0;
+                }
+                assertThat(vectors.vector(c, offset, length), is(expected));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCharacteristicVectorsIllegalArg() {
+        new CharacteristicVectors(null);
+    }
+
+    private String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
+
+    // ---- LevenshteinAutomata.java tests ----
+
+    private Root testTree() {
+        Root root = new Root();
+        root.addOrIncrementWord("setup", 10);
+        root.addOrIncrementWord("setup1", 30);
+        root.addOrIncrementWord("setup12", 50);
+        root.addOrIncrementWord("setup3333", 1000);
+        return root;
+    }
+
+    @Test
+    public void testIntersect() {
+        Root root = testTree();
+        assertThat(LevenshteinAutomata.intersect(root, laf, "setup5", 6), equalTo("setup1"));
+        assertThat(LevenshteinAutomata.intersect(root, laf, "setup", 6), equalTo("setup"));
+        assertThat(LevenshteinAutomata.intersect(root, laf, "not within 2 LD", 6), equalTo(""));
+    }
+
+    @Test
+    public void testIntersectNAdaptive() {
+        Root root = testTree();
+        assertThat(LevenshteinAutomata.intersectN(root, laf, "setup5", 3, 6, 1),
+                equalTo(Arrays.asList("setup1", "setup")));
+        assertThat(LevenshteinAutomata.intersectN(root, laf, "setup5", 3, 6, 0), sizeIs(0));
+        assertThat(LevenshteinAutomata.intersectN(root, laf, "setup5", 3, 6, 2),
+                equalTo(LevenshteinAutomata.intersectN(root, laf, "setup5", 3, 6)));
+    }
+
+    @Test
+    public void testIntersectNBestFirst() {
+        Random random = new Random(42);
+        Root root = new Root();
+        List<Trie> tries = Arrays.asList(new DoubleArrayTrie(), new RadixTrie());
+        Map<String, Integer> words = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String word = randomWord(random, 1 + random.nextInt(7));
+            int weight = 1 + random.nextInt(1000);
+            root.addOrIncrementWord(word, weight);
+            tries.forEach(trie -> trie.addOrIncrementWord(word, weight));
+            words.merge(word, weight, Integer::sum);
+        }
+        for (int i = 0; i < 50; i++) {
+            String input = randomWord(random, random.nextInt(8));
+            List<Double> expected = words.entrySet().stream()
+                    .filter(e -> calculateDistance(e.getKey(), input) <= laf.getMaxDistance())
+                    .map(e -> score(e.getValue(), calculateDistance(e.getKey(), input)))
+                    .sorted(Comparator.reverseOrder()).limit(5).collect(Collectors.toList());
+            List<Double> actual = LevenshteinAutomata.intersectN(root, laf, input, 5, 2).stream()
+                    .map(word -> score(words.get(word), calculateDistance(word, input)))
+                    .collect(Collectors.toList());
+            assertThat(input, actual, equalTo(expected));
+            for (Trie trie : tries) {
+                List<Double> actualTrie = LevenshteinAutomata.intersectN(trie, laf, input, 5, 2).stream()
+                        .map(word -> score(words.get(word), calculateDistance(word, input)))
+                        .collect(Collectors.toList());
+                assertThat(trie + " " + input, actualTrie, equalTo(expected));
+                List<Double> actualBatch = LevenshteinAutomata.intersectBatch(trie, laf, Arrays.asList(input), 5, 2)
+                        .get(0).stream().map(word -> score(words.get(word), calculateDistance(word, input)))
+                        .collect(Collectors.toList());
+                assertThat(trie + " " + input, actualBatch, equalTo(expected));
+            }
+        }
+    }
+
+    @Test
+    public void testIntersectBatch() {
+        Random random = new Random(42);
+        Root root = new Root();
+        List<Trie> tries = Arrays.asList(new DoubleArrayTrie(), new RadixTrie());
+        Map<String, Integer> words = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String word = randomWord(random, 1 + random.nextInt(7));
+            int weight = 1 + random.nextInt(1000);
+            root.addOrIncrementWord(word, weight);
+            tries.forEach(trie -> trie.addOrIncrementWord(word, weight));
+            words.merge(word, weight, Integer::sum);
+        }
+        List<String> inputs = new ArrayList<>();
+        int[] radii = new int[50];
+        for (int i = 0; i < radii.length; i++) {
+            inputs.add(randomWord(random, random.nextInt(8)));
+            radii[i] = random.nextInt(3);
+        }
+        List<List<String>> batch = LevenshteinAutomata.intersectBatch(root, laf, inputs, 5, 2, radii);
+        assertThat(batch, sizeIs(inputs.size()));
+        for (int i = 0; i < inputs.size(); i++) {
+            String input = inputs.get(i);
+            int radius = radii[i];
+            List<Double> expected = words.entrySet().stream()
+                    .filter(e -> calculateDistance(e.getKey(), input) <= radius)
+                    .map(e -> score(e.getValue(), calculateDistance(e.getKey(), input)))
+                    .sorted(Comparator.reverseOrder()).limit(5).collect(Collectors.toList());
+            List<Double> actual = batch.get(i).stream()
+                    .map(word -> score(words.get(word), calculateDistance(word, input)))
+                    .collect(Collectors.toList());
+            assertThat(input, actual, equalTo(expected));
+        }
+        assertThat(LevenshteinAutomata.intersectBatch(testTree(), laf, Arrays.asList("setup5", "setup"), 1, 6),
+                equalTo(Arrays.asList(Arrays.asList("setup1"), Arrays.asList("setup"))));
+        assertThat(LevenshteinAutomata.intersectBatch(root, laf, new ArrayList<>(), 5, 2), sizeIs(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntersectBatchIllegalArg() {
+        LevenshteinAutomata.intersectBatch(testTree(), laf, Arrays.asList("setup", "stup"), 1, 6, new int[]{1});
+    }
+
+    @Test
+    public void testCompiledAutomaton() {
+        Random random = new Random(42);
+        Root root = new Root();
+        for (int i = 0; i < 300; i++) {
+            root.addOrIncrementWord(randomWord(random, 1 + random.nextInt(7)), 1 + random.nextInt(1000));
+        }
+        LevenshteinAutomataFactory damerau = LevenshteinAutomataFactory.getInstance(2, true);
+        for (int i = 0; i < 50; i++) {
+            String input = randomWord(random, random.nextInt(8)) + (i % 10 == 0 ? "z" : "");
+            for (LevenshteinAutomataFactory factory : Arrays.asList(laf, damerau)) {
+                CompiledLevenshteinAutomaton automaton = new CompiledLevenshteinAutomaton(factory, input);
+                assertThat(automaton.getWord(), is(input));
+                assertThat(LevenshteinAutomata.intersectN(root, automaton, 5, 2),
+                        equalTo(LevenshteinAutomata.intersectN(root, factory, input, 5, 2)));
+                assertThat(LevenshteinAutomata.intersectN(root, automaton, 5, 2, 1),
+                        equalTo(LevenshteinAutomata.intersectN(root, factory, input, 5, 2, 1)));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompiledAutomatonIllegalArg() {
+        new CompiledLevenshteinAutomaton(laf, null);
+    }
+
+    @Test
+    public void testAutomatonCache() {
+        AutomatonCache cache = new AutomatonCache(2);
+        CompiledLevenshteinAutomaton setup = cache.get(laf, "setup");
+        assertThat(cache.get(laf, "setup"), is(setup));
+        assertThat(cache.get(LevenshteinAutomataFactory.getInstance(1), "setup").getMaxDistance(), is(1));
+        assertThat(cache.size(), is(2));
+        cache.get(laf, "setup");
+        cache.get(laf, "stup");
+        assertThat("The least recently used automaton is dropped", cache.size(), is(2));
+        assertThat(cache.get(laf, "setup"), is(setup));
+        assertThat(LevenshteinAutomata.intersectN(testTree(), cache.get(laf, "setup5"), 3, 6, 1),
+                equalTo(Arrays.asList("setup1", "setup")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAutomatonCacheIllegalArg() {
+        new AutomatonCache(0);
+    }
+
+    private double score(int weight, int distance) {
+        return weight / Math.pow(distance, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntersectNAdaptiveIllegalArg() {
+        LevenshteinAutomata.intersectN(testTree(), laf, "setup", 1, 6, 3);
+    }
+}
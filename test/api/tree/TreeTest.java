@@ -3,6 +3,10 @@ package api.tree;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
 import static matchers.TreeMatchers.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -324,4 +328,213 @@ public class TreeTest {
         assertThat(ac, instanceOf(Leaf.class));
         assertThat(ac, both(hasLetter(Element.TERM)).and(hasWeight(100)));
     }
+
+    //****** Trie tests ******
+
+    @Test
+    public void testRootAsTrie() throws Exception {
+        root.addOrIncrementWord("ab", 3);
+        root.addOrIncrementWord("ac", 5);
+        int a = root.child(root.root(), 'a');
+        assertThat(root.getElement(a), is(root.getChild('a')));
+        assertThat(root.letter(a), is('a'));
+        assertThat(root.weight(a), is(5));
+        assertThat(root.child(a, 'd'), is(Trie.NONE));
+        int leaf = root.searchPrefix("ab" + Element.TERM);
+        assertThat(root.isLeaf(leaf), is(true));
+        assertThat(root.word(leaf), is("ab"));
+        assertThat(root.weight(leaf), is(3));
+        assertThat(root.searchPrefix("b"), is(Trie.NONE));
+        assertThat(children(root, a), is(2));
+    }
+
+    @Test
+    public void testRootRegistersAddedElements() throws Exception {
+        // node and leaf of setUp are never added as child, so they have no handle
+        assertThat(node.getId(), is(0));
+        assertThat(leaf.getId(), is(0));
+        root.addOrIncrementWord("a", 1);
+        int a = root.child(root.root(), 'a');
+        assertThat(a, is(1));
+        int term = root.child(a, Element.TERM);
+        assertThat(term, is(2));
+        assertThat(root.getElement(term), is(root.getChild('a').getChild(Element.TERM)));
+        assertThat(root.word(term), is("a"));
+    }
+
+    @Test
+    public void testDoubleArrayTrie() throws Exception {
+        DoubleArrayTrie trie = new DoubleArrayTrie();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                // mostly ascii letters, but also some letters with high codes
+                word.append(random.nextInt(20) == 0
+                        ? (char) (0x4e00 + random.nextInt(50))
+                        : (char) ('a' + random.nextInt(26)));
+            }
+            int weight = random.nextInt(1000);
+            trie.addOrIncrementWord(word.toString(), weight);
+            root.addOrIncrementWord(word.toString(), weight);
+        }
+        assertSameTrie(root, root.root(), trie, trie.root());
+        assertThat(trie.searchPrefix("no such prefix"), is(Trie.NONE));
+        assertThat(trie.child(trie.root(), '!'), is(Trie.NONE));
+    }
+
+    /**
+     * Asserts that two tries contain the same keywords with the same weights.
+     *
+     * @param expected     The expected trie.
+     * @param expectedNode A node of {@code expected}.
+     * @param actual       The actual trie.
+     * @param actualNode   The node of {@code actual} with the same word as {@code expectedNode}.
+     */
+    private void assertSameTrie(Trie expected, int expectedNode, Trie actual, int actualNode) {
+        assertThat(actual.word(actualNode), is(expected.word(expectedNode)));
+        assertThat(actual.weight(actualNode), is(expected.weight(expectedNode)));
+        assertThat(actual.isLeaf(actualNode), is(expected.isLeaf(expectedNode)));
+        assertThat(children(actual, actualNode), is(children(expected, expectedNode)));
+        for (int child = expected.firstChild(expectedNode); child != Trie.NONE; child = expected.nextSibling(child)) {
+            int actualChild = actual.child(actualNode, expected.letter(child));
+            assertThat(actual.letter(actualChild), is(expected.letter(child)));
+            assertSameTrie(expected, child, actual, actualChild);
+        }
+    }
+
+    private int children(Trie trie, int node) {
+        int result = 0;
+        for (int child = trie.firstChild(node); child != Trie.NONE; child = trie.nextSibling(child)) {
+            result++;
+        }
+        return result;
+    }
+
+    @Test
+    public void testRadixTrie() throws Exception {
+        RadixTrie trie = new RadixTrie();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(4)));
+            }
+            int weight = random.nextInt(1000);
+            trie.addOrIncrementWord(word.toString(), weight);
+            root.addOrIncrementWord(word.toString(), weight);
+        }
+        assertThat(leaves(trie, trie.root()), equalTo(leaves(root, root.root())));
+        assertThat(trie.weight(trie.root()), is(root.getWeight()));
+        for (String prefix : new String[]{"", "a", "abc", "dcbad", "abcdabcdab", "abe"}) {
+            int node = trie.searchPrefix(prefix);
+            int expected = root.searchPrefix(prefix);
+            assertThat(prefix, node == Trie.NONE, is(expected == Trie.NONE));
+            if (node != Trie.NONE) {
+                assertThat(prefix, leaves(trie, node), equalTo(leaves(root, expected)));
+                assertThat(prefix, trie.weight(node), is(root.weight(expected)));
+            }
+        }
+    }
+
+    @Test
+    public void testRadixTrieCompression() throws Exception {
+        RadixTrie trie = new RadixTrie();
+        trie.addOrIncrementWord("part-0123456789", 5);
+        // the root, one node with the whole keyword, and its leaf
+        assertThat(trie.size(), is(3));
+        trie.addOrIncrementWord("part-0123", 7);
+        trie.addOrIncrementWord("part-0199", 3);
+        int part = trie.firstChild(trie.root());
+        assertThat(trie.labelLength(part), is(7));
+        assertThat(trie.word(part), is("part-01"));
+        assertThat(trie.weight(part), is(7));
+        assertThat(trie.searchPrefix("part-012"), is(trie.child(part, '2')));
+        assertThat(trie.word(trie.searchPrefix("part-012")), is("part-0123"));
+        assertThat(trie.searchPrefix("part-0124"), is(Trie.NONE));
+        assertThat(leaves(trie, trie.root()).keySet(), hasItems("part-0123456789", "part-0123", "part-0199"));
+        assertThat(trie.size(), is(8));
+    }
+
+    /**
+     * Collects the keywords below a node of a trie.
+     *
+     * @param trie The trie.
+     * @param node A node of {@code trie}.
+     * @return The keywords below {@code node} along with their weights.
+     */
+    private Map<String, Integer> leaves(Trie trie, int node) {
+        Map<String, Integer> result = new HashMap<>();
+        if (trie.isLeaf(node)) {
+            result.put(trie.word(node), trie.weight(node));
+        }
+        for (int child = trie.firstChild(node); child != Trie.NONE; child = trie.nextSibling(child)) {
+            result.putAll(leaves(trie, child));
+        }
+        return result;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDoubleArrayTrieInvalidAddOrIncrementWord() throws Exception {
+        new DoubleArrayTrie().addOrIncrementWord("word", -1);
+    }
+
+    @Test
+    public void testTrieType() throws Exception {
+        assertThat(TrieType.NODES.create(), instanceOf(Root.class));
+        assertThat(TrieType.DOUBLE_ARRAY.create(), instanceOf(DoubleArrayTrie.class));
+        assertThat(TrieType.RADIX.create(), instanceOf(RadixTrie.class));
+    }
+
+    @Test
+    public void testTermTable() throws Exception {
+        TermTable terms = new TermTable();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(terms.add("term" + i), is(i));
+        }
+        assertThat(terms.add(""), is(1000));
+        assertThat(terms.size(), is(1001));
+        assertThat(terms.get(0), is("term0"));
+        assertThat(terms.get(999), is("term999"));
+        assertThat(terms.get(1000), is(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTermTableInvalidId() throws Exception {
+        TermTable terms = new TermTable();
+        terms.add("term");
+        terms.get(1);
+    }
+
+    @Test
+    public void testTermIds() throws Exception {
+        for (TrieType type : TrieType.values()) {
+            Trie trie = type.create();
+            String[] words = {"apple", "apple pie", "app", "", "banana", "apples"};
+            for (String word : words) {
+                trie.addOrIncrementWord(word, 1);
+            }
+            // splitting edges and moving nodes does not change the term ids
+            trie.addOrIncrementWord("apple", 2);
+            trie.addOrIncrementWord("appeal", 1);
+            trie.addOrIncrementWord("bandana", 1);
+            for (int i = 0; i < words.length; i++) {
+                int leaf = trie.child(trie.searchPrefix(words[i]), Element.TERM);
+                assertThat(type.toString(), trie.termId(leaf), is(i));
+                assertThat(type.toString(), trie.term(i), is(words[i]));
+                assertThat(type.toString(), trie.word(leaf), is(words[i]));
+            }
+            assertThat(type.toString(), trie.term(trie.termId(trie.child(trie.searchPrefix("appeal"), Element.TERM))),
+                    is("appeal"));
+        }
+        Leaf apple = (Leaf) root.searchElement("apple" + Element.TERM);
+        assertThat(apple, is(nullValue()));
+        root.addOrIncrementWord("apple", 1);
+        apple = (Leaf) root.searchElement("apple" + Element.TERM);
+        assertThat(apple.getTermId(), is(0));
+        assertThat(apple.getWord(), is("apple" + Element.TERM));
+        assertThat(leaf.getTermId(), is(Leaf.NO_TERM));
+    }
 }